@@ -2,8 +2,10 @@ package com.example.spring.data.jpa.encryption;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SpringDataJpaEncryptionExampleApplication {
 
 	public static void main(String[] args) {
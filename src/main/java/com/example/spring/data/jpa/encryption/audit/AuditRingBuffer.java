@@ -0,0 +1,104 @@
+package com.example.spring.data.jpa.encryption.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded ring of decryption records, written by any number of threads and read by a single drainer thread.
+ * <p>
+ * Writers claim a sequence number with compare-and-set, fill the slot of this sequence, then publish it by storing
+ * the sequence in the slot: the drainer reads slots in sequence order, and stops at the first one not published yet.
+ * Slots are preallocated arrays, so that recording allocates nothing. A writer never waits: when the drainer is a full
+ * ring behind, the record is dropped and counted instead.
+ */
+final class AuditRingBuffer {
+
+    /**
+     * Receives the records taken from the ring by {@link #drain(Drainer)}.
+     */
+    interface Drainer {
+
+        void accept(String codePath, String tenantId, String fieldName, long timeMillis);
+    }
+
+    private final int mask;
+    private final AtomicLong claimedSequence = new AtomicLong();
+    private final AtomicLong drainedSequence = new AtomicLong();
+    private final AtomicLongArray publishedSequences;
+    private final String[] codePaths;
+    private final String[] tenantIds;
+    private final String[] fieldNames;
+    private final long[] timesMillis;
+    private final LongAdder droppedRecords = new LongAdder();
+
+    AuditRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.publishedSequences = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            // No slot is published before its first sequence is claimed
+            publishedSequences.set(slot, -1);
+        }
+        this.codePaths = new String[capacity];
+        this.tenantIds = new String[capacity];
+        this.fieldNames = new String[capacity];
+        this.timesMillis = new long[capacity];
+    }
+
+    /**
+     * @return {@code false} when the ring is full, and the record dropped
+     */
+    boolean offer(String codePath, String tenantId, String fieldName, long timeMillis) {
+        long sequence;
+        do {
+            sequence = claimedSequence.get();
+            if (sequence - drainedSequence.get() > mask) {
+                droppedRecords.increment();
+                return false;
+            }
+        } while (!claimedSequence.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        codePaths[slot] = codePath;
+        tenantIds[slot] = tenantId;
+        fieldNames[slot] = fieldName;
+        timesMillis[slot] = timeMillis;
+        publishedSequences.lazySet(slot, sequence);
+        return true;
+    }
+
+    /**
+     * Takes all the records published so far, in sequence order. Must only be called by one thread at a time.
+     *
+     * @return the number of records drained
+     */
+    int drain(Drainer drainer) {
+        long sequence = drainedSequence.get();
+        int drained = 0;
+        while (true) {
+            int slot = (int) sequence & mask;
+            if (publishedSequences.get(slot) != sequence) {
+                break;
+            }
+            drainer.accept(codePaths[slot], tenantIds[slot], fieldNames[slot], timesMillis[slot]);
+            codePaths[slot] = null;
+            tenantIds[slot] = null;
+            fieldNames[slot] = null;
+            sequence++;
+            drained++;
+            // Frees the slot for writers, which may now claim it for the sequence of the next lap
+            drainedSequence.lazySet(sequence);
+        }
+        return drained;
+    }
+
+    long getDroppedCount() {
+        return droppedRecords.sum();
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.spring.data.jpa.encryption.audit;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.export.ExportFormat;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.SYNC;
+
+/**
+ * Audit trail of the decryptions run by the crypto converters: which code path read which field, for which tenant.
+ * <p>
+ * Recording a decryption only stores references to the code path, tenant and field names in an {@link AuditRingBuffer},
+ * which takes a few tens of nanoseconds and allocates nothing. A drainer thread empties the ring every 10 ms into
+ * counts of decryptions per code path, tenant and field, and appends one JSON line per count to the {@code file} every
+ * {@code flush-interval-millis}, so that the trail grows with the number of code paths rather than of decryptions.
+ * When the drainer falls a full ring behind, decryptions are not recorded but counted as dropped, and a line with the
+ * dropped count is appended: reads are never slowed down by the audit.
+ * <p>
+ * The code path is the innermost {@link #scope(String) scope} of the thread. Outside of any scope, it is the first frame of
+ * the {@code caller-package} found on the stack when {@code capture-callers} is enabled, which costs a stack walk per
+ * decryption, and {@value #UNSCOPED_CODE_PATH} otherwise.
+ */
+@Component
+@ConditionalOnProperty(name = "example.database.encryption.audit.enabled", havingValue = "true")
+public class DecryptionAuditTrail {
+
+    static final String UNSCOPED_CODE_PATH = "unscoped";
+    static final String DROPPED_FIELD_NAME = "dropped";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecryptionAuditTrail.class);
+
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final ThreadLocal<String> CURRENT_SCOPE = new ThreadLocal<>();
+    private static final String[] COLUMN_NAMES = {"from", "to", "codePath", "tenant", "field", "count"};
+    private static final String CONVERTERS_PACKAGE = CryptoContextHolder.class.getPackageName() + ".";
+
+    private final AuditRingBuffer ringBuffer;
+    private final long flushIntervalMillis;
+    private final Path file;
+    private final boolean captureCallers;
+    private final String callerPackage;
+    private final StackWalker stackWalker = StackWalker.getInstance();
+    private final Map<AuditKey, long[]> counts = new LinkedHashMap<>();
+    private final Thread drainer;
+    private AuditKey lastKey;
+    private long[] lastCount;
+    private long reportedDroppedCount;
+    private long lastFlushMillis = System.currentTimeMillis();
+    private volatile boolean running = true;
+
+    public DecryptionAuditTrail(@Value("${example.database.encryption.audit.capacity:65536}") int capacity,
+                                @Value("${example.database.encryption.audit.flush-interval-millis:1000}") long flushIntervalMillis,
+                                @Value("${example.database.encryption.audit.file:decryption-audit.jsonl}") String file,
+                                @Value("${example.database.encryption.audit.capture-callers:false}") boolean captureCallers,
+                                @Value("${example.database.encryption.audit.caller-package:com.example}") String callerPackage) {
+        this.ringBuffer = new AuditRingBuffer(capacity);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.file = Paths.get(file);
+        this.captureCallers = captureCallers;
+        this.callerPackage = callerPackage + ".";
+        this.drainer = new Thread(this::drainPeriodically, "decryption-audit");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Attributes the decryptions of the current thread to the given code path until the returned scope is closed.
+     * Scopes can be opened whether the audit trail is enabled or not. {@link #runInScope(String, Runnable)} and
+     * {@link #callInScope(String, Supplier)} close it once the given action completes.
+     */
+    public static Scope scope(String codePath) {
+        Scope scope = new Scope(CURRENT_SCOPE.get());
+        CURRENT_SCOPE.set(Objects.requireNonNull(codePath));
+        return scope;
+    }
+
+    /**
+     * Runs the action with its decryptions attributed to the given code path.
+     */
+    public static void runInScope(String codePath, Runnable action) {
+        Scope scope = scope(codePath);
+        try {
+            action.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Calls the action with its decryptions attributed to the given code path.
+     *
+     * @return the result of the action
+     */
+    public static <T> T callInScope(String codePath, Supplier<T> action) {
+        Scope scope = scope(codePath);
+        try {
+            return action.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * @return the code path of the innermost scope of the current thread, or the given one outside of any scope, to
+     * open a scope with on the worker threads decrypting on behalf of the current thread
+     */
+    public static String currentScopeOr(String defaultCodePath) {
+        String scope = CURRENT_SCOPE.get();
+        return scope == null ? defaultCodePath : scope;
+    }
+
+    /**
+     * Records the decryption of the given field by the current thread, without waiting.
+     */
+    public void recordDecryption(String fieldName) {
+        ringBuffer.offer(currentCodePath(), TenantContext.getCurrentTenant(), fieldName, System.currentTimeMillis());
+    }
+
+    /**
+     * Appends the decryptions recorded so far to the file, without waiting for the next flush interval.
+     */
+    public synchronized void flush() {
+        drain();
+        long droppedCount = ringBuffer.getDroppedCount() - reportedDroppedCount;
+        if (counts.isEmpty() && droppedCount == 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<AuditKey, long[]> count : counts.entrySet()) {
+            AuditKey key = count.getKey();
+            appendLine(lines, count.getValue()[0], count.getValue()[1], key.codePath, key.tenantId, key.fieldName, count.getValue()[2]);
+        }
+        if (droppedCount > 0) {
+            appendLine(lines, lastFlushMillis, now, null, null, DROPPED_FIELD_NAME, droppedCount);
+        }
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Files.write(file, lines.toString().getBytes(UTF_8), CREATE, APPEND, SYNC);
+            counts.clear();
+            lastCount = null;
+            reportedDroppedCount += droppedCount;
+            lastFlushMillis = now;
+        } catch (IOException e) {
+            // Counts are kept, and appended with the next flush
+            LOGGER.error("Cannot append {} decryption counts to audit file {}", counts.size(), file, e);
+        }
+    }
+
+    /**
+     * @return the number of decryptions which could not be recorded, as the ring was full
+     */
+    public long getDroppedCount() {
+        return ringBuffer.getDroppedCount();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join();
+        // Records offered while the drainer was stopping
+        flush();
+    }
+
+    private String currentCodePath() {
+        String scope = CURRENT_SCOPE.get();
+        if (scope != null) {
+            return scope;
+        }
+        return captureCallers ? findCaller() : UNSCOPED_CODE_PATH;
+    }
+
+    private String findCaller() {
+        Optional<StackWalker.StackFrame> caller = stackWalker.walk(frames -> frames
+                .filter(frame -> isCaller(frame.getClassName()))
+                .findFirst());
+        return caller.map(frame -> frame.getClassName() + "." + frame.getMethodName()).orElse(UNSCOPED_CODE_PATH);
+    }
+
+    private boolean isCaller(String className) {
+        return className.startsWith(callerPackage)
+                && !className.startsWith(CONVERTERS_PACKAGE)
+                && !className.equals(DecryptionAuditTrail.class.getName())
+                && !className.startsWith(DecryptionAuditTrail.class.getName() + "$");
+    }
+
+    /**
+     * Counts the records of the ring, so that it is emptied much more often than the file is written.
+     */
+    private synchronized void drain() {
+        ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> {
+            // Consecutive records mostly share the same code path, tenant and field instances
+            if (lastCount == null || codePath != lastKey.codePath || tenantId != lastKey.tenantId || fieldName != lastKey.fieldName) {
+                lastKey = new AuditKey(codePath, tenantId, fieldName);
+                lastCount = counts.computeIfAbsent(lastKey, key -> new long[]{timeMillis, timeMillis, 0});
+            }
+            // First and last decryption times, and number of decryptions
+            lastCount[1] = Math.max(lastCount[1], timeMillis);
+            lastCount[2]++;
+        });
+    }
+
+    private void drainPeriodically() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        long nextFlushNanos = System.nanoTime() + flushIntervalNanos;
+        while (running) {
+            // Not interrupted by shutdown but unparked, so that a flush in progress is not interrupted
+            LockSupport.parkNanos(this, Math.min(DRAIN_INTERVAL_NANOS, flushIntervalNanos));
+            try {
+                if (System.nanoTime() - nextFlushNanos >= 0) {
+                    flush();
+                    nextFlushNanos = System.nanoTime() + flushIntervalNanos;
+                } else {
+                    drain();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot flush decryption audit trail", e);
+            }
+        }
+    }
+
+    private static void appendLine(StringBuilder lines, long fromMillis, long toMillis, String codePath, String tenantId, String fieldName, long count) {
+        ExportFormat.JSONL.appendRow(lines, COLUMN_NAMES, new String[]{
+                Instant.ofEpochMilli(fromMillis).toString(),
+                Instant.ofEpochMilli(toMillis).toString(),
+                codePath,
+                tenantId,
+                fieldName,
+                Long.toString(count)
+        });
+    }
+
+    /**
+     * Code path of the current thread until closed, then the code path of the enclosing scope, if any.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final String enclosingCodePath;
+
+        private Scope(String enclosingCodePath) {
+            this.enclosingCodePath = enclosingCodePath;
+        }
+
+        @Override
+        public void close() {
+            if (enclosingCodePath == null) {
+                CURRENT_SCOPE.remove();
+            } else {
+                CURRENT_SCOPE.set(enclosingCodePath);
+            }
+        }
+    }
+
+    private static final class AuditKey {
+
+        private final String codePath;
+        private final String tenantId;
+        private final String fieldName;
+
+        private AuditKey(String codePath, String tenantId, String fieldName) {
+            this.codePath = codePath;
+            this.tenantId = tenantId;
+            this.fieldName = fieldName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AuditKey)) {
+                return false;
+            }
+            AuditKey auditKey = (AuditKey) o;
+            return Objects.equals(codePath, auditKey.codePath)
+                    && Objects.equals(tenantId, auditKey.tenantId)
+                    && Objects.equals(fieldName, auditKey.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(codePath, tenantId, fieldName);
+        }
+    }
+}
@@ -1,36 +1,93 @@
 package com.example.spring.data.jpa.encryption.converters;
 
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import org.springframework.beans.factory.annotation.Autowired;
+
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.persistence.AttributeConverter;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
+import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.security.spec.AlgorithmParameterSpec;
 
-import static com.example.spring.data.jpa.encryption.converters.KeyProperty.DATABASE_ENCRYPTION_KEY;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
 abstract class AbstractCryptoConverter<T> implements AttributeConverter<T, String> {
 
     private CipherInitializer cipherInitializer;
 
-    public AbstractCryptoConverter() {
-        this(new CipherInitializer());
-    }
+    private CryptoContextHolder cryptoContextHolder;
+
+    private FieldCodecPlan fieldCodecPlan = FieldCodecPlan.DEFAULT;
+
+    private BoundedCache<String, T> decryptedAttributeCache;
+
+    private BoundedCache<T, String> encryptedAttributeCache;
 
-    public AbstractCryptoConverter(CipherInitializer cipherInitializer) {
+    private CryptoOperationMonitor cryptoOperationMonitor;
+
+    private DecryptionAuditTrail decryptionAuditTrail;
+
+    private boolean strictDecoding;
+
+    public AbstractCryptoConverter(CipherInitializer cipherInitializer, CryptoContextHolder cryptoContextHolder) {
         this.cipherInitializer = cipherInitializer;
+        this.cryptoContextHolder = cryptoContextHolder;
+    }
+
+    @Autowired
+    public void setCryptoContextHolder(CryptoContextHolder cryptoContextHolder) {
+        this.cryptoContextHolder = cryptoContextHolder;
+    }
+
+    @Autowired(required = false)
+    public void setEncryptionPolicies(EncryptionPolicies encryptionPolicies) {
+        this.fieldCodecPlan = encryptionPolicies.planFor(getClass());
+        this.decryptedAttributeCache = fieldCodecPlan.isCached() ? new BoundedCache<>(fieldCodecPlan.getCacheSize()) : null;
+        this.encryptedAttributeCache = fieldCodecPlan.isCached() ? new BoundedCache<>(fieldCodecPlan.getCacheSize()) : null;
+    }
+
+    @Autowired(required = false)
+    public void setCryptoOperationMonitor(CryptoOperationMonitor cryptoOperationMonitor) {
+        this.cryptoOperationMonitor = cryptoOperationMonitor;
+    }
+
+    @Autowired(required = false)
+    public void setDecryptionAuditTrail(DecryptionAuditTrail decryptionAuditTrail) {
+        this.decryptionAuditTrail = decryptionAuditTrail;
     }
 
     @Override
     public String convertToDatabaseColumn(T attribute) {
-        if (isNotEmpty(DATABASE_ENCRYPTION_KEY) && isNotNullOrEmpty(attribute)) {
+        CryptoContext cryptoContext = cryptoContextHolder.get();
+        if (cryptoContext.isEncryptionEnabled() && isNotNullOrEmpty(attribute)) {
+            if (encryptedAttributeCache != null) {
+                String cachedDbData = encryptedAttributeCache.get(cryptoContext, attribute);
+                if (cachedDbData != null) {
+                    if (cryptoOperationMonitor != null) {
+                        cryptoOperationMonitor.recordEncryption(getFieldName(), 0);
+                    }
+                    return cachedDbData;
+                }
+            }
             try {
-                Cipher cipher = cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, DATABASE_ENCRYPTION_KEY);
-                return encrypt(cipher, attribute);
+                long startNanos = cryptoOperationMonitor == null ? 0 : System.nanoTime();
+                String dbData = encrypt(cryptoContext, attribute);
+                if (cryptoOperationMonitor != null) {
+                    cryptoOperationMonitor.recordEncryption(getFieldName(), System.nanoTime() - startNanos);
+                }
+                if (encryptedAttributeCache != null) {
+                    encryptedAttributeCache.put(cryptoContext, attribute, dbData);
+                }
+                return dbData;
             } catch (NoSuchAlgorithmException | InvalidKeyException | InvalidAlgorithmParameterException | BadPaddingException | NoSuchPaddingException | IllegalBlockSizeException e) {
                 throw new RuntimeException(e);
             }
@@ -40,10 +97,32 @@ abstract class AbstractCryptoConverter<T> implements AttributeConverter<T, Strin
 
     @Override
     public T convertToEntityAttribute(String dbData) {
-        if (isNotEmpty(DATABASE_ENCRYPTION_KEY) && isNotEmpty(dbData)) {
+        CryptoContext cryptoContext = cryptoContextHolder.get();
+        if (cryptoContext.isEncryptionEnabled() && isNotEmpty(dbData)) {
+            if (decryptionAuditTrail != null) {
+                // Cached attributes are audited too, as they are read like decrypted ones
+                decryptionAuditTrail.recordDecryption(getFieldName());
+            }
+            if (decryptedAttributeCache != null) {
+                T cachedAttribute = decryptedAttributeCache.get(cryptoContext, dbData);
+                if (cachedAttribute != null) {
+                    if (cryptoOperationMonitor != null) {
+                        // Counted without duration, so that loading too many entities still exceeds the threshold
+                        cryptoOperationMonitor.recordDecryption(getFieldName(), 0);
+                    }
+                    return cachedAttribute;
+                }
+            }
             try {
-                Cipher cipher = cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, DATABASE_ENCRYPTION_KEY);
-                return decrypt(cipher, dbData);
+                long startNanos = cryptoOperationMonitor == null ? 0 : System.nanoTime();
+                T attribute = fieldCodecPlan.canonicalize(decrypt(cryptoContext, dbData));
+                if (cryptoOperationMonitor != null) {
+                    cryptoOperationMonitor.recordDecryption(getFieldName(), System.nanoTime() - startNanos);
+                }
+                if (decryptedAttributeCache != null && attribute != null) {
+                    decryptedAttributeCache.put(cryptoContext, dbData, attribute);
+                }
+                return attribute;
             } catch (NoSuchAlgorithmException | InvalidKeyException | InvalidAlgorithmParameterException | BadPaddingException | NoSuchPaddingException | IllegalBlockSizeException e) {
                 throw new RuntimeException(e);
             }
@@ -57,19 +136,96 @@ abstract class AbstractCryptoConverter<T> implements AttributeConverter<T, Strin
 
     abstract String entityAttributeToString(T attribute);
 
+    /**
+     * Makes decryptions fail on plaintexts which are not valid UTF-8, instead of replacing their malformed bytes.
+     */
+    void setStrictDecoding(boolean strictDecoding) {
+        this.strictDecoding = strictDecoding;
+    }
+
+    byte[] entityAttributeToBytes(T attribute) {
+        return entityAttributeToString(attribute).getBytes(UTF_8);
+    }
+
+    T bytesToEntityAttribute(byte[] bytes) {
+        return stringToEntityAttribute(strictDecoding ? decodeStrictly(bytes) : new String(bytes, UTF_8));
+    }
+
+    private static String decodeStrictly(byte[] bytes) {
+        try {
+            return UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Decrypted value is not valid UTF-8", e);
+        }
+    }
+
+    private String getFieldName() {
+        return fieldCodecPlan.getFieldName() != null ? fieldCodecPlan.getFieldName() : getClass().getSimpleName();
+    }
+
     byte[] callCipherDoFinal(Cipher cipher, byte[] bytes) throws IllegalBlockSizeException, BadPaddingException {
         return cipher.doFinal(bytes);
     }
 
-    private String encrypt(Cipher cipher, T attribute) throws IllegalBlockSizeException, BadPaddingException {
-        byte[] bytesToEncrypt = entityAttributeToString(attribute).getBytes();
-        byte[] encryptedBytes = callCipherDoFinal(cipher, bytesToEncrypt);
-        return Base64.getEncoder().encodeToString(encryptedBytes);
+    private String encrypt(CryptoContext cryptoContext, T attribute) throws NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException, NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException {
+        EncryptEvent event = new EncryptEvent();
+        event.begin();
+        byte[] iv = fieldCodecPlan.generateIv();
+        Cipher cipher = prepareAndInitCipher(Cipher.ENCRYPT_MODE, cryptoContext, iv);
+        byte[] plainBytes;
+        byte[] encryptedBytes;
+        try {
+            plainBytes = entityAttributeToBytes(attribute);
+            encryptedBytes = callCipherDoFinal(cipher, fieldCodecPlan.compress(plainBytes));
+        } finally {
+            cipherInitializer.releaseCipher(cipher);
+        }
+        String dbData = fieldCodecPlan.encode(iv, encryptedBytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.converterClass = getClass();
+            event.fieldName = getFieldName();
+            event.plaintextSize = plainBytes.length;
+            event.ciphertextSize = encryptedBytes.length;
+            event.commit();
+        }
+        return dbData;
     }
 
-    private T decrypt(Cipher cipher, String dbData) throws IllegalBlockSizeException, BadPaddingException {
-        byte[] encryptedBytes = Base64.getDecoder().decode(dbData);
-        byte[] decryptedBytes = callCipherDoFinal(cipher, encryptedBytes);
-        return stringToEntityAttribute(new String(decryptedBytes));
+    private T decrypt(CryptoContext cryptoContext, String dbData) throws NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException, NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException {
+        DecryptEvent event = new DecryptEvent();
+        event.begin();
+        byte[] decodedBytes = fieldCodecPlan.decode(dbData);
+        Cipher cipher = prepareAndInitCipher(Cipher.DECRYPT_MODE, cryptoContext, fieldCodecPlan.extractIv(decodedBytes));
+        byte[] encryptedBytes = fieldCodecPlan.extractEncryptedBytes(decodedBytes);
+        byte[] plainBytes;
+        try {
+            plainBytes = fieldCodecPlan.decompress(callCipherDoFinal(cipher, encryptedBytes));
+        } finally {
+            cipherInitializer.releaseCipher(cipher);
+        }
+        T attribute = bytesToEntityAttribute(plainBytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.converterClass = getClass();
+            event.fieldName = getFieldName();
+            event.plaintextSize = plainBytes.length;
+            event.ciphertextSize = encryptedBytes.length;
+            event.commit();
+        }
+        return attribute;
+    }
+
+    private Cipher prepareAndInitCipher(int encryptionMode, CryptoContext cryptoContext, byte[] iv) throws NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException, NoSuchPaddingException {
+        if (iv == null && !fieldCodecPlan.isKeyDerived()) {
+            return cipherInitializer.prepareAndInitCipher(encryptionMode, cryptoContext);
+        }
+        Key key = fieldCodecPlan.isKeyDerived() ? cryptoContext.getFieldKey(fieldCodecPlan.getFieldName()) : cryptoContext.getSecretKey();
+        AlgorithmParameterSpec algorithmParameters = iv == null ? cryptoContext.getAlgorithmParameters() : fieldCodecPlan.algorithmParameters(iv);
+        return cipherInitializer.prepareAndInitCipher(encryptionMode, fieldCodecPlan.getCipherInstanceName(), key, algorithmParameters);
     }
 }
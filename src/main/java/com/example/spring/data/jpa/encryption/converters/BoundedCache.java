@@ -0,0 +1,138 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free cache holding, for each of the last {@code maxContexts} {@link CryptoContext}s used, at most
+ * {@code maxSize} entries computed with it. Entries are only served for the context they were computed with, so that
+ * a key change never serves stale values, while requests alternating between tenants keep the entries of each one.
+ * When a new context is used and {@code maxContexts} are already cached, the entries of the least recently used one
+ * are dropped. When the entries of a context are full, an arbitrary one is evicted.
+ */
+final class BoundedCache<K, V> {
+
+    static final int DEFAULT_MAX_CONTEXTS = 8;
+
+    private final int maxSize;
+    private final int maxContexts;
+    private final AtomicReference<List<Generation<K, V>>> generations = new AtomicReference<>(Collections.emptyList());
+    // Advanced on every put, so that gets only write the recency of their generation once between two misses
+    private final AtomicLong clock = new AtomicLong();
+
+    BoundedCache(int maxSize) {
+        this(maxSize, DEFAULT_MAX_CONTEXTS);
+    }
+
+    BoundedCache(int maxSize, int maxContexts) {
+        if (maxContexts <= 0) {
+            throw new IllegalArgumentException("Max contexts must be positive: " + maxContexts);
+        }
+        this.maxSize = maxSize;
+        this.maxContexts = maxContexts;
+    }
+
+    V get(CryptoContext cryptoContext, K key) {
+        Generation<K, V> generation = find(generations.get(), cryptoContext);
+        if (generation == null) {
+            return null;
+        }
+        generation.markUsed(clock.get());
+        return generation.entries.get(key);
+    }
+
+    void put(CryptoContext cryptoContext, K key, V value) {
+        long now = clock.incrementAndGet();
+        Generation<K, V> generation = findOrAdd(cryptoContext, now);
+        if (generation == null) {
+            return;
+        }
+        generation.markUsed(now);
+        if (generation.entries.size() >= maxSize) {
+            Iterator<K> keys = generation.entries.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        generation.entries.put(key, value);
+    }
+
+    int size() {
+        int size = 0;
+        List<Generation<K, V>> currentGenerations = generations.get();
+        for (int i = 0; i < currentGenerations.size(); i++) {
+            size += currentGenerations.get(i).entries.size();
+        }
+        return size;
+    }
+
+    int contextCount() {
+        return generations.get().size();
+    }
+
+    /**
+     * @return the generation of the given context, or {@code null} when another thread changed the generations
+     */
+    private Generation<K, V> findOrAdd(CryptoContext cryptoContext, long now) {
+        List<Generation<K, V>> currentGenerations = generations.get();
+        Generation<K, V> generation = find(currentGenerations, cryptoContext);
+        if (generation != null) {
+            return generation;
+        }
+        Generation<K, V> newGeneration = new Generation<>(cryptoContext, now);
+        List<Generation<K, V>> newGenerations = new ArrayList<>(currentGenerations);
+        if (newGenerations.size() < maxContexts) {
+            newGenerations.add(newGeneration);
+        } else {
+            newGenerations.set(leastRecentlyUsed(currentGenerations), newGeneration);
+        }
+        // The value is not cached when another thread won, the next miss will cache it
+        return generations.compareAndSet(currentGenerations, Collections.unmodifiableList(newGenerations)) ? newGeneration : null;
+    }
+
+    private static <K, V> Generation<K, V> find(List<Generation<K, V>> generations, CryptoContext cryptoContext) {
+        // Indexed, so that lookups do not allocate iterators
+        for (int i = 0; i < generations.size(); i++) {
+            if (generations.get(i).cryptoContext == cryptoContext) {
+                return generations.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static <K, V> int leastRecentlyUsed(List<Generation<K, V>> generations) {
+        int leastRecentlyUsed = 0;
+        for (int i = 1; i < generations.size(); i++) {
+            if (generations.get(i).lastUsed < generations.get(leastRecentlyUsed).lastUsed) {
+                leastRecentlyUsed = i;
+            }
+        }
+        return leastRecentlyUsed;
+    }
+
+    private static final class Generation<K, V> {
+
+        private final CryptoContext cryptoContext;
+        private final Map<K, V> entries = new ConcurrentHashMap<>();
+        private volatile long lastUsed;
+
+        private Generation(CryptoContext cryptoContext, long lastUsed) {
+            this.cryptoContext = cryptoContext;
+            this.lastUsed = lastUsed;
+        }
+
+        private void markUsed(long now) {
+            // Hits of the same generation do not write anything until the next miss
+            if (lastUsed < now) {
+                lastUsed = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+/**
+ * Counters of the canonicalization table of one field since startup, see {@link Encrypted#canonicalize()}.
+ */
+public final class CanonicalizationStatistics {
+
+    private final long lookups;
+    private final long hits;
+    private final long savedBytes;
+
+    CanonicalizationStatistics(long lookups, long hits, long savedBytes) {
+        this.lookups = lookups;
+        this.hits = hits;
+        this.savedBytes = savedBytes;
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the number of decrypted values replaced by an equal canonical instance
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the estimated heap size of the duplicate instances which were not retained, thanks to the hits
+     */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return hits + "/" + lookups + " values canonicalized, ~" + savedBytes + " bytes saved";
+    }
+}
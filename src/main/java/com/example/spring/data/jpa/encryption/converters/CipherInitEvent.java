@@ -0,0 +1,22 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name(CipherInitEvent.NAME)
+@Label("Cipher Init")
+@Description("Borrowing a cipher from the pool, or creating it, and initializing it with a key and parameters")
+@Threshold("1 ms")
+final class CipherInitEvent extends CryptoEvent {
+
+    static final String NAME = "com.example.spring.data.jpa.encryption.CipherInit";
+
+    @Label("Transformation")
+    String transformation;
+
+    @Label("Encryption")
+    @Description("Whether the cipher is initialized to encrypt, or to decrypt")
+    boolean encryption;
+}
@@ -10,20 +10,67 @@ import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.AlgorithmParameterSpec;
 
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
 public class CipherInitializer {
 
     private static final String CIPHER_INSTANCE_NAME = "AES/CBC/PKCS5Padding";
     private static final String SECRET_KEY_ALGORITHM = "AES";
+    private static final CipherPool SHARED_CIPHER_POOL = new CipherPool(CipherPool.DEFAULT_CAPACITY);
 
-    public Cipher prepareAndInitCipher(int encryptionMode, String key) throws InvalidKeyException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+    private final CipherPool cipherPool;
+
+    public CipherInitializer() {
+        this(SHARED_CIPHER_POOL);
+    }
+
+    CipherInitializer(CipherPool cipherPool) {
+        this.cipherPool = cipherPool;
+    }
+
+    public CryptoContext createCryptoContext(String key) throws NoSuchPaddingException, NoSuchAlgorithmException {
+        if (isEmpty(key)) {
+            return CryptoContext.disabled();
+        }
         Cipher cipher = Cipher.getInstance(CIPHER_INSTANCE_NAME);
         Key secretKey = new SecretKeySpec(key.getBytes(), SECRET_KEY_ALGORITHM);
         AlgorithmParameterSpec algorithmParameters = getAlgorithmParameterSpec(cipher);
 
+        return new CryptoContext(CIPHER_INSTANCE_NAME, secretKey, algorithmParameters);
+    }
+
+    public Cipher prepareAndInitCipher(int encryptionMode, CryptoContext cryptoContext) throws InvalidKeyException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        return prepareAndInitCipher(encryptionMode, cryptoContext.getCipherInstanceName(), cryptoContext.getSecretKey(), cryptoContext.getAlgorithmParameters());
+    }
+
+    public Cipher prepareAndInitCipher(int encryptionMode, String cipherInstanceName, Key secretKey, AlgorithmParameterSpec algorithmParameters) throws InvalidKeyException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        CipherInitEvent event = new CipherInitEvent();
+        event.begin();
+        Cipher cipher = cipherPool.borrow(cipherInstanceName);
+
         callCipherInit(cipher, encryptionMode, secretKey, algorithmParameters);
+        event.end();
+        if (event.shouldCommit()) {
+            event.transformation = cipherInstanceName;
+            event.encryption = encryptionMode == Cipher.ENCRYPT_MODE;
+            event.commit();
+        }
         return cipher;
     }
 
+    /**
+     * Returns a cipher obtained from {@code prepareAndInitCipher} once its operation is done, so that it is
+     * initialized again for another operation instead of being instantiated. Ciphers which are never released are
+     * simply garbage collected.
+     */
+    public void releaseCipher(Cipher cipher) {
+        cipherPool.release(cipher);
+    }
+
+    public Cipher prepareAndInitCipher(int encryptionMode, String key) throws InvalidKeyException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        return prepareAndInitCipher(encryptionMode, createCryptoContext(key));
+    }
+
     void callCipherInit(Cipher cipher, int encryptionMode, Key secretKey, AlgorithmParameterSpec algorithmParameters) throws InvalidKeyException, InvalidAlgorithmParameterException {
         cipher.init(encryptionMode, secretKey, algorithmParameters);
     }
@@ -0,0 +1,92 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reuses {@link Cipher} instances across threads, as {@link Cipher#getInstance(String)} looks up the provider and
+ * allocates a new implementation on every call, while {@link Cipher#init} fully resets an existing one.
+ * <p>
+ * Each transformation has at most {@code capacity} idle ciphers, by default one per available processor: no more
+ * ciphers can be in use at the same time than threads running, whatever the number of threads. A per-thread cache
+ * would instead keep one cipher per thread ever created, and a synchronized pool would block threads waiting for
+ * its monitor. Here, borrowing and releasing only swap array slots with atomic operations and never wait: when no
+ * idle cipher is found, a new one is created, and when all slots are taken, the released cipher is dropped.
+ */
+final class CipherPool {
+
+    static final int DEFAULT_CAPACITY = Runtime.getRuntime().availableProcessors();
+
+    private final int capacity;
+    private final Map<String, AtomicReferenceArray<Cipher>> idleCiphersByTransformation = new ConcurrentHashMap<>();
+    private final LongAdder createdCiphers = new LongAdder();
+
+    CipherPool(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns an idle cipher of the given transformation, or a new one. It must be initialized before use.
+     */
+    Cipher borrow(String transformation) throws NoSuchPaddingException, NoSuchAlgorithmException {
+        AtomicReferenceArray<Cipher> idleCiphers = idleCiphers(transformation);
+        int start = probe();
+        for (int i = 0; i < capacity; i++) {
+            int slot = (start + i) % capacity;
+            if (idleCiphers.get(slot) != null) {
+                Cipher cipher = idleCiphers.getAndSet(slot, null);
+                if (cipher != null) {
+                    return cipher;
+                }
+            }
+        }
+        createdCiphers.increment();
+        return Cipher.getInstance(transformation);
+    }
+
+    /**
+     * Makes a cipher returned by {@link #borrow(String)} available again. The caller must not use it anymore.
+     */
+    void release(Cipher cipher) {
+        AtomicReferenceArray<Cipher> idleCiphers = idleCiphers(cipher.getAlgorithm());
+        int start = probe();
+        for (int i = 0; i < capacity; i++) {
+            int slot = (start + i) % capacity;
+            if (idleCiphers.get(slot) == null && idleCiphers.compareAndSet(slot, null, cipher)) {
+                return;
+            }
+        }
+    }
+
+    int idleCount(String transformation) {
+        AtomicReferenceArray<Cipher> idleCiphers = idleCiphers(transformation);
+        int idleCount = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (idleCiphers.get(slot) != null) {
+                idleCount++;
+            }
+        }
+        return idleCount;
+    }
+
+    long createdCount() {
+        return createdCiphers.sum();
+    }
+
+    private AtomicReferenceArray<Cipher> idleCiphers(String transformation) {
+        return idleCiphersByTransformation.computeIfAbsent(transformation, t -> new AtomicReferenceArray<>(capacity));
+    }
+
+    private int probe() {
+        // Threads start from different slots, so that they rarely compete for the same one
+        return capacity == 0 ? 0 : (int) (Thread.currentThread().getId() % capacity);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Shares the encryption key between the nodes of a cluster through the versioned {@code encryption_key} table, where
+ * keys are stored encrypted with the master key. Each node polls the latest version every
+ * {@code poll-interval-millis}, and only loads the key and publishes it through {@link KeyProperty} when the version
+ * changed, so conversions never access the database and all nodes switch keys within one poll interval.
+ * <p>
+ * The table is seeded with the configured key when it is empty. Rotating the key does not re-encrypt existing data.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "example.database.encryption.cluster.enabled", havingValue = "true")
+public class ClusterKeyRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterKeyRegistry.class);
+
+    private static final String CREATE_TABLE = "create table if not exists encryption_key (version bigint not null primary key, encrypted_key varchar(255) not null, created_at timestamp not null)";
+    private static final String SELECT_LATEST_VERSION = "select max(version) from encryption_key";
+    private static final String SELECT_ENCRYPTED_KEY = "select encrypted_key from encryption_key where version = ?";
+    private static final String INSERT_KEY = "insert into encryption_key (version, encrypted_key, created_at) values (?, ?, ?)";
+
+    private final CipherInitializer cipherInitializer = new CipherInitializer();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KeyProperty keyProperty;
+    private final String configuredKey;
+    private final CryptoContext masterCryptoContext;
+    private volatile long currentVersion;
+
+    /**
+     * Depends on {@link KeyProperty}, so that the configured key is published before the key of the table replaces it.
+     */
+    public ClusterKeyRegistry(JdbcTemplate jdbcTemplate,
+                              KeyProperty keyProperty,
+                              @Value("${example.database.encryption.key:}") String configuredKey,
+                              @Value("${example.database.encryption.cluster.master-key:}") String masterKey) throws NoSuchPaddingException, NoSuchAlgorithmException {
+        if (isEmpty(masterKey)) {
+            throw new IllegalStateException("example.database.encryption.cluster.master-key is required to store encryption keys in database");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.keyProperty = keyProperty;
+        this.configuredKey = configuredKey;
+        this.masterCryptoContext = cipherInitializer.createCryptoContext(masterKey);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        if (!isEmpty(configuredKey) && jdbcTemplate.queryForObject(SELECT_LATEST_VERSION, Long.class) == null) {
+            try {
+                insertKey(1, configuredKey);
+            } catch (DuplicateKeyException e) {
+                // Another node seeded the table first
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Publishes a new key version to all nodes, and switches to it on this node right away.
+     *
+     * @throws IllegalStateException when another node rotates the key at the same time
+     */
+    public synchronized void rotateKey(String key) {
+        Long latestVersion = jdbcTemplate.queryForObject(SELECT_LATEST_VERSION, Long.class);
+        long newVersion = latestVersion == null ? 1 : latestVersion + 1;
+        try {
+            insertKey(newVersion, key);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("Encryption key version " + newVersion + " was published concurrently by another node", e);
+        }
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${example.database.encryption.cluster.poll-interval-millis:5000}")
+    public synchronized void refresh() {
+        Long latestVersion = jdbcTemplate.queryForObject(SELECT_LATEST_VERSION, Long.class);
+        if (latestVersion == null || latestVersion == currentVersion) {
+            return;
+        }
+        String encryptedKey = jdbcTemplate.queryForObject(SELECT_ENCRYPTED_KEY, String.class, latestVersion);
+        keyProperty.setDatabase(decryptKey(encryptedKey));
+        currentVersion = latestVersion;
+        LOGGER.info("Switched to encryption key version {}", latestVersion);
+    }
+
+    /**
+     * @return the version of the key used by this node, 0 while the table holds no key
+     */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    private void insertKey(long version, String key) {
+        jdbcTemplate.update(INSERT_KEY, version, encryptKey(key), Timestamp.from(Instant.now()));
+    }
+
+    private String encryptKey(String key) {
+        try {
+            Cipher cipher = cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, masterCryptoContext);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(key.getBytes(UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt encryption key with master key", e);
+        }
+    }
+
+    private String decryptKey(String encryptedKey) {
+        try {
+            Cipher cipher = cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, masterCryptoContext);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedKey)), UTF_8);
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
+            throw new IllegalStateException("Cannot decrypt encryption key, check that all nodes use the same master key", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decrypt encryption key with master key", e);
+        }
+    }
+}
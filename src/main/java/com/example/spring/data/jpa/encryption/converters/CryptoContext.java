@@ -0,0 +1,72 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Immutable snapshot of everything needed to encrypt or decrypt a value: algorithm configuration, key material and
+ * derived cipher parameters. Instances are built once per key change and published through {@link CryptoContextHolder},
+ * so that nothing is derived again on each conversion.
+ * <p>
+ * Per-field subkeys are derived from the key with HKDF the first time a field asks for them, then cached with the
+ * context, so they are derived once per key.
+ */
+public final class CryptoContext {
+
+    private static final CryptoContext DISABLED = new CryptoContext(null, null, null);
+    private static final String FIELD_ENCRYPTION_INFO_PREFIX = "field-encryption:";
+
+    private final String cipherInstanceName;
+    private final Key secretKey;
+    private final AlgorithmParameterSpec algorithmParameters;
+    private final byte[] pseudoRandomKey;
+    private final ConcurrentMap<String, Key> fieldKeys = new ConcurrentHashMap<>();
+
+    CryptoContext(String cipherInstanceName, Key secretKey, AlgorithmParameterSpec algorithmParameters) {
+        this.cipherInstanceName = cipherInstanceName;
+        this.secretKey = secretKey;
+        this.algorithmParameters = algorithmParameters;
+        this.pseudoRandomKey = secretKey == null ? null : Hkdf.extract(null, secretKey.getEncoded());
+    }
+
+    public static CryptoContext disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEncryptionEnabled() {
+        return secretKey != null;
+    }
+
+    public String getCipherInstanceName() {
+        return cipherInstanceName;
+    }
+
+    public Key getSecretKey() {
+        return secretKey;
+    }
+
+    public AlgorithmParameterSpec getAlgorithmParameters() {
+        return algorithmParameters;
+    }
+
+    /**
+     * @return the encryption subkey of the given field, as long as the key of this context, which is independent from
+     * the subkeys of other fields and from subkeys derived for other purposes
+     */
+    public Key getFieldKey(String fieldName) {
+        if (pseudoRandomKey == null) {
+            throw new IllegalStateException("Encryption is disabled, no key can be derived for " + fieldName);
+        }
+        return fieldKeys.computeIfAbsent(fieldName, this::deriveFieldKey);
+    }
+
+    private Key deriveFieldKey(String fieldName) {
+        byte[] info = (FIELD_ENCRYPTION_INFO_PREFIX + fieldName).getBytes(UTF_8);
+        return new SecretKeySpec(Hkdf.expand(pseudoRandomKey, info, secretKey.getEncoded().length), secretKey.getAlgorithm());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the current {@link CryptoContext} to the converters.
+ * A key change replaces the whole context at once, so a conversion always sees either the old or the new context,
+ * never a mix of both, and reading it does not take any lock.
+ * <p>
+ * When a tenant is set in {@link TenantContext}, the context of this tenant is resolved from the
+ * {@link TenantCryptoContextCache} instead of the default one.
+ */
+@Component
+public class CryptoContextHolder {
+
+    private final AtomicReference<CryptoContext> cryptoContext = new AtomicReference<>(CryptoContext.disabled());
+
+    private TenantCryptoContextCache tenantCryptoContextCache;
+
+    @Autowired(required = false)
+    public void setTenantCryptoContextCache(TenantCryptoContextCache tenantCryptoContextCache) {
+        this.tenantCryptoContextCache = tenantCryptoContextCache;
+    }
+
+    public CryptoContext get() {
+        String tenantId = TenantContext.getCurrentTenant();
+        if (tenantId == null) {
+            return cryptoContext.get();
+        }
+        if (tenantCryptoContextCache == null) {
+            throw new IllegalStateException("Tenant encryption keys are not configured, cannot encrypt data of tenant " + tenantId);
+        }
+        return tenantCryptoContextCache.get(tenantId);
+    }
+
+    public void set(CryptoContext newCryptoContext) {
+        cryptoContext.set(newCryptoContext);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.AttributeConverter;
+
+/**
+ * Creates crypto converters outside of Hibernate, configured exactly like the ones used by entities, for components
+ * which read or write encrypted columns without loading entities.
+ */
+@Component
+public class CryptoConverterFactory {
+
+    private final CryptoContextHolder cryptoContextHolder;
+    private final EncryptionPolicies encryptionPolicies;
+    private CryptoOperationMonitor cryptoOperationMonitor;
+    private DecryptionAuditTrail decryptionAuditTrail;
+
+    @Autowired
+    public CryptoConverterFactory(CryptoContextHolder cryptoContextHolder, EncryptionPolicies encryptionPolicies) {
+        this.cryptoContextHolder = cryptoContextHolder;
+        this.encryptionPolicies = encryptionPolicies;
+    }
+
+    /**
+     * Operations of the created converters count in the statistics of the current transaction, as bulk reads and
+     * writes are the ones most likely to reach the monitoring thresholds.
+     */
+    @Autowired(required = false)
+    public void setCryptoOperationMonitor(CryptoOperationMonitor cryptoOperationMonitor) {
+        this.cryptoOperationMonitor = cryptoOperationMonitor;
+    }
+
+    /**
+     * Decryptions of the created converters are audited like those of entities, as they read the same fields.
+     */
+    @Autowired(required = false)
+    public void setDecryptionAuditTrail(DecryptionAuditTrail decryptionAuditTrail) {
+        this.decryptionAuditTrail = decryptionAuditTrail;
+    }
+
+    /**
+     * Creates a converter whose decryptions fail on plaintexts which are not valid UTF-8, instead of replacing their
+     * malformed bytes, which is what a wrong key gives in the rare cases where the padding is still valid.
+     */
+    public <C extends AttributeConverter<?, String>> C createStrict(Class<C> converterClass) {
+        C converter = create(converterClass);
+        ((AbstractCryptoConverter<?>) converter).setStrictDecoding(true);
+        return converter;
+    }
+
+    public <C extends AttributeConverter<?, String>> C create(Class<C> converterClass) {
+        C converter = BeanUtils.instantiateClass(converterClass);
+        if (!(converter instanceof AbstractCryptoConverter)) {
+            throw new IllegalArgumentException(converterClass.getName() + " is not a crypto converter");
+        }
+        AbstractCryptoConverter<?> cryptoConverter = (AbstractCryptoConverter<?>) converter;
+        cryptoConverter.setCryptoContextHolder(cryptoContextHolder);
+        cryptoConverter.setEncryptionPolicies(encryptionPolicies);
+        cryptoConverter.setCryptoOperationMonitor(cryptoOperationMonitor);
+        cryptoConverter.setDecryptionAuditTrail(decryptionAuditTrail);
+        return converter;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the JDK Flight Recorder events of the crypto converters, so that their cost shows up in recordings next to
+ * the GC, lock and socket events of the same threads. Events are timed with {@link #begin()} and {@link #end()},
+ * and only committed when a recording enables them and their duration reaches the threshold of the recording, which
+ * defaults to the {@code @Threshold} of each event type: these are the only costs when nothing is recorded.
+ * <p>
+ * Thresholds are configured like those of the JDK events, e.g. with the {@code jfr/encryption.jfc} settings.
+ */
+@Category({"Spring Data JPA Encryption", "Crypto"})
+@StackTrace(false)
+abstract class CryptoEvent extends Event {
+}
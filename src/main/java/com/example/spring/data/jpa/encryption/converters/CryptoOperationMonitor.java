@@ -0,0 +1,99 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts the encryptions and decryptions run by the crypto converters in each transaction, and logs a warning when
+ * a transaction exceeds the configured thresholds, which usually means that far more entities are loaded than used.
+ * Operations running outside of a transaction are not accounted. Values served from the converter caches are accounted
+ * without duration.
+ */
+@Component
+public class CryptoOperationMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CryptoOperationMonitor.class);
+
+    private final long decryptionThreshold;
+    private final long durationThresholdNanos;
+
+    @Autowired
+    public CryptoOperationMonitor(@Value("${example.database.encryption.monitoring.decryption-threshold:1000}") long decryptionThreshold,
+                                  @Value("${example.database.encryption.monitoring.duration-threshold-millis:100}") long durationThresholdMillis) {
+        this.decryptionThreshold = decryptionThreshold;
+        this.durationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(durationThresholdMillis);
+    }
+
+    /**
+     * @return a snapshot of the operations run so far by the current transaction, empty outside of a transaction
+     */
+    public CryptoOperationStatistics currentTransactionStatistics() {
+        CryptoOperationStatistics statistics = (CryptoOperationStatistics) TransactionSynchronizationManager.getResource(this);
+        return statistics == null ? CryptoOperationStatistics.empty() : statistics.copy();
+    }
+
+    void recordEncryption(String fieldName, long nanos) {
+        CryptoOperationStatistics statistics = currentStatistics();
+        if (statistics != null) {
+            statistics.recordEncryption(fieldName, nanos);
+        }
+    }
+
+    void recordDecryption(String fieldName, long nanos) {
+        CryptoOperationStatistics statistics = currentStatistics();
+        if (statistics != null) {
+            statistics.recordDecryption(fieldName, nanos);
+        }
+    }
+
+    boolean exceedsThresholds(CryptoOperationStatistics statistics) {
+        return statistics.getDecryptions() >= decryptionThreshold || statistics.getElapsedNanos() >= durationThresholdNanos;
+    }
+
+    private CryptoOperationStatistics currentStatistics() {
+        CryptoOperationStatistics statistics = (CryptoOperationStatistics) TransactionSynchronizationManager.getResource(this);
+        if (statistics == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            statistics = new CryptoOperationStatistics(TransactionSynchronizationManager.getCurrentTransactionName());
+            TransactionSynchronizationManager.bindResource(this, statistics);
+            TransactionSynchronizationManager.registerSynchronization(new StatisticsSynchronization(statistics));
+        }
+        return statistics;
+    }
+
+    /**
+     * Statistics are bound as a transaction resource, so that a suspended transaction keeps its own statistics.
+     */
+    private class StatisticsSynchronization extends TransactionSynchronizationAdapter {
+
+        private final CryptoOperationStatistics statistics;
+
+        StatisticsSynchronization(CryptoOperationStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CryptoOperationMonitor.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CryptoOperationMonitor.this, statistics);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CryptoOperationMonitor.this);
+            if (exceedsThresholds(statistics)) {
+                LOGGER.warn("Transaction {} ran {}, check for entities loaded but not used", statistics.getTransactionName(), statistics);
+            }
+        }
+    }
+}
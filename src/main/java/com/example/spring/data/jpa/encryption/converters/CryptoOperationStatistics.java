@@ -0,0 +1,89 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encryptions and decryptions run by the crypto converters within one transaction, in total and by field.
+ * Only updated by the thread running the transaction.
+ */
+public final class CryptoOperationStatistics {
+
+    private final String transactionName;
+    private final Map<String, long[]> operationCountsByField = new LinkedHashMap<>();
+    private long encryptions;
+    private long decryptions;
+    private long elapsedNanos;
+
+    CryptoOperationStatistics(String transactionName) {
+        this.transactionName = transactionName;
+    }
+
+    private CryptoOperationStatistics(CryptoOperationStatistics statistics) {
+        this.transactionName = statistics.transactionName;
+        statistics.operationCountsByField.forEach((fieldName, operationCounts) -> operationCountsByField.put(fieldName, operationCounts.clone()));
+        this.encryptions = statistics.encryptions;
+        this.decryptions = statistics.decryptions;
+        this.elapsedNanos = statistics.elapsedNanos;
+    }
+
+    static CryptoOperationStatistics empty() {
+        return new CryptoOperationStatistics((String) null);
+    }
+
+    void recordEncryption(String fieldName, long nanos) {
+        operationCountsByField.computeIfAbsent(fieldName, name -> new long[2])[0]++;
+        encryptions++;
+        elapsedNanos += nanos;
+    }
+
+    void recordDecryption(String fieldName, long nanos) {
+        operationCountsByField.computeIfAbsent(fieldName, name -> new long[2])[1]++;
+        decryptions++;
+        elapsedNanos += nanos;
+    }
+
+    CryptoOperationStatistics copy() {
+        return new CryptoOperationStatistics(this);
+    }
+
+    public String getTransactionName() {
+        return transactionName;
+    }
+
+    public long getEncryptions() {
+        return encryptions;
+    }
+
+    public long getDecryptions() {
+        return decryptions;
+    }
+
+    public long getEncryptions(String fieldName) {
+        return operationCountsByField.getOrDefault(fieldName, new long[2])[0];
+    }
+
+    public long getDecryptions(String fieldName) {
+        return operationCountsByField.getOrDefault(fieldName, new long[2])[1];
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder()
+                .append(decryptions).append(" decryptions and ")
+                .append(encryptions).append(" encryptions in ")
+                .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms");
+        String separator = " (";
+        for (Map.Entry<String, long[]> entry : operationCountsByField.entrySet()) {
+            stringBuilder.append(separator).append(entry.getKey()).append(": ")
+                    .append(entry.getValue()[1]).append('/').append(entry.getValue()[0]);
+            separator = ", ";
+        }
+        return operationCountsByField.isEmpty() ? stringBuilder.toString() : stringBuilder.append(')').toString();
+    }
+}
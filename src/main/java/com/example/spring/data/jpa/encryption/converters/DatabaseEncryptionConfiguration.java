@@ -0,0 +1,36 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Enables the entities encrypted by the database engine, such as
+ * {@link com.example.spring.data.jpa.encryption.domain.DatabaseEncryptedUser}, by wrapping the data source in a
+ * {@link DatabaseEncryptionKeyDataSource}. Without it, their repositories are not created, as H2 would store and read
+ * their values as {@code NULL} without any error.
+ */
+@Configuration
+@ConditionalOnProperty(name = "example.database.encryption.database-side.enabled", havingValue = "true")
+public class DatabaseEncryptionConfiguration {
+
+    @Bean
+    public static BeanPostProcessor databaseEncryptionKeyDataSourcePostProcessor(BeanFactory beanFactory) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof DatabaseEncryptionKeyDataSource)) {
+                    // Resolved lazily, post-processors are created before the other beans. The key is set before the
+                    // data source is used, as connections cannot be handed out without it
+                    beanFactory.getBeanProvider(KeyProperty.class).getIfAvailable();
+                    return new DatabaseEncryptionKeyDataSource((DataSource) bean, beanFactory.getBean(CryptoContextHolder.class));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets the key of the current {@link CryptoContext}, which depends on the current tenant, in the
+ * {@code @encryption_key} session variable of each connection handed out, for the entities encrypted by the database
+ * engine. A connection cannot be handed out when encryption is disabled, as H2 would silently store {@code NULL}
+ * values without a key: database-side encryption needs {@code example.database.encryption.key} to be set.
+ */
+public class DatabaseEncryptionKeyDataSource extends DelegatingDataSource {
+
+    private static final String SET_ENCRYPTION_KEY = "set @encryption_key = ?";
+
+    private final CryptoContextHolder cryptoContextHolder;
+
+    public DatabaseEncryptionKeyDataSource(DataSource targetDataSource, CryptoContextHolder cryptoContextHolder) {
+        super(targetDataSource);
+        this.cryptoContextHolder = cryptoContextHolder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return setEncryptionKey(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return setEncryptionKey(super.getConnection(username, password));
+    }
+
+    private Connection setEncryptionKey(Connection connection) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SET_ENCRYPTION_KEY)) {
+            CryptoContext cryptoContext = cryptoContextHolder.get();
+            if (!cryptoContext.isEncryptionEnabled()) {
+                throw new SQLException("Database-side encryption is enabled, but no encryption key is available");
+            }
+            preparedStatement.setBytes(1, cryptoContext.getSecretKey().getEncoded());
+            preparedStatement.execute();
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name(DecryptEvent.NAME)
+@Label("Decrypt")
+@Description("Decryption of a database column into its entity attribute by a crypto converter, cipher init included")
+@Threshold("1 ms")
+final class DecryptEvent extends CryptoEvent {
+
+    static final String NAME = "com.example.spring.data.jpa.encryption.Decrypt";
+
+    @Label("Converter")
+    Class<?> converterClass;
+
+    @Label("Field")
+    String fieldName;
+
+    @Label("Plaintext Size")
+    @DataAmount
+    int plaintextSize;
+
+    @Label("Ciphertext Size")
+    @DataAmount
+    int ciphertextSize;
+}
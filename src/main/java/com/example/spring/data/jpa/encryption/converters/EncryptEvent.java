@@ -0,0 +1,30 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name(EncryptEvent.NAME)
+@Label("Encrypt")
+@Description("Encryption of an entity attribute into its database column by a crypto converter, cipher init included")
+@Threshold("1 ms")
+final class EncryptEvent extends CryptoEvent {
+
+    static final String NAME = "com.example.spring.data.jpa.encryption.Encrypt";
+
+    @Label("Converter")
+    Class<?> converterClass;
+
+    @Label("Field")
+    String fieldName;
+
+    @Label("Plaintext Size")
+    @DataAmount
+    int plaintextSize;
+
+    @Label("Ciphertext Size")
+    @DataAmount
+    int ciphertextSize;
+}
@@ -0,0 +1,74 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encryption policy of an entity field. The field must also be mapped with its own crypto converter class through
+ * {@code @Convert}, so that {@link EncryptionPolicies} can compile the policy into the plan executed by this converter.
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Encrypted {
+
+    Algorithm algorithm() default Algorithm.AES_CBC;
+
+    /**
+     * Deterministic encryption gives the same ciphertext for the same value, which allows equality lookups but reveals
+     * equal values. Randomized encryption uses a random IV stored in front of each ciphertext.
+     */
+    Mode mode() default Mode.DETERMINISTIC;
+
+    /**
+     * Encrypts the field with its own subkey, derived from the configured key with HKDF and the field name, instead of
+     * the configured key itself, so that no two fields share a key.
+     */
+    boolean derivedKey() default false;
+
+    /**
+     * Deflates values before encryption, only worth it for long and repetitive values.
+     */
+    boolean compress() default false;
+
+    /**
+     * Caches decrypted values by ciphertext and ciphertexts by value, for deterministic fields with few distinct values
+     * which are read or written in bulk. Each cache holds at most {@link #cacheSize()} entries for each of the last
+     * keys used, so that the entries of alternating tenants are kept.
+     */
+    boolean cache() default false;
+
+    int cacheSize() default 10_000;
+
+    /**
+     * Makes equal decrypted values share one instance, for {@code String} fields with few distinct values which are
+     * loaded in bulk and retained, such as common names. Canonical instances are kept in a weakly referenced table of
+     * {@link #canonicalizationTableSize()} slots, see {@link EncryptionPolicies#getCanonicalizationStatistics()}.
+     */
+    boolean canonicalize() default false;
+
+    int canonicalizationTableSize() default 16_384;
+
+    Encoding encoding() default Encoding.BASE64;
+
+    enum Algorithm {
+        AES_CBC,
+        /**
+         * Authenticated encryption, only available in randomized mode since a fixed IV would break it.
+         */
+        AES_GCM
+    }
+
+    enum Mode {
+        DETERMINISTIC,
+        RANDOMIZED
+    }
+
+    enum Encoding {
+        BASE64,
+        BASE64_URL
+    }
+}
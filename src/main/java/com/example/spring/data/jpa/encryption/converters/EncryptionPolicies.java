@@ -0,0 +1,108 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Algorithm;
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Mode;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.domain.EntityScanPackages;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scans {@link Encrypted} fields of entities once at startup, and compiles their policies into the
+ * {@link FieldCodecPlan} of their converter class. Converters without policy use the default plan.
+ */
+@Component
+public class EncryptionPolicies {
+
+    private final Map<Class<?>, FieldCodecPlan> fieldCodecPlans = new HashMap<>();
+
+    @Autowired
+    public EncryptionPolicies(BeanFactory beanFactory) {
+        this(findEntityClasses(beanFactory));
+    }
+
+    public EncryptionPolicies(Collection<Class<?>> entityClasses) {
+        entityClasses.forEach(this::compile);
+    }
+
+    FieldCodecPlan planFor(Class<?> converterClass) {
+        return fieldCodecPlans.getOrDefault(converterClass, FieldCodecPlan.DEFAULT);
+    }
+
+    /**
+     * @return the canonicalization statistics of each canonicalized field, by field name
+     */
+    public Map<String, CanonicalizationStatistics> getCanonicalizationStatistics() {
+        Map<String, CanonicalizationStatistics> statistics = new TreeMap<>();
+        for (FieldCodecPlan fieldCodecPlan : fieldCodecPlans.values()) {
+            if (fieldCodecPlan.isCanonicalized()) {
+                statistics.put(fieldCodecPlan.getFieldName(), fieldCodecPlan.canonicalizationStatistics());
+            }
+        }
+        return statistics;
+    }
+
+    private void compile(Class<?> entityClass) {
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Encrypted encrypted = field.getAnnotation(Encrypted.class);
+                if (encrypted != null) {
+                    compile(entityClass.getSimpleName() + "." + field.getName(), field.getType(), field.getAnnotation(Convert.class), encrypted);
+                }
+            }
+        }
+    }
+
+    private void compile(String fieldName, Class<?> fieldType, Convert convert, Encrypted encrypted) {
+        if (convert == null || !AbstractCryptoConverter.class.isAssignableFrom(convert.converter())) {
+            throw new IllegalStateException(fieldName + " is @Encrypted but is not converted with a crypto converter");
+        }
+        if (encrypted.mode() == Mode.DETERMINISTIC && encrypted.algorithm() == Algorithm.AES_GCM) {
+            throw new IllegalStateException(fieldName + " cannot use AES_GCM in deterministic mode, as GCM must never reuse an IV");
+        }
+        if (encrypted.mode() == Mode.RANDOMIZED && encrypted.cache()) {
+            throw new IllegalStateException(fieldName + " cannot be cached in randomized mode, as its ciphertexts never repeat");
+        }
+        if (encrypted.canonicalize() && fieldType != String.class) {
+            throw new IllegalStateException(fieldName + " cannot be canonicalized, only String values are");
+        }
+        FieldCodecPlan fieldCodecPlan = new FieldCodecPlan(fieldName, encrypted.algorithm(), encrypted.mode(), encrypted.derivedKey(), encrypted.compress(),
+                encrypted.cache(), encrypted.cacheSize(), encrypted.canonicalize() ? encrypted.canonicalizationTableSize() : 0, encrypted.encoding());
+        FieldCodecPlan otherFieldCodecPlan = fieldCodecPlans.putIfAbsent(convert.converter(), fieldCodecPlan);
+        if (otherFieldCodecPlan != null) {
+            throw new IllegalStateException(fieldName + " and " + otherFieldCodecPlan.getFieldName() + " are @Encrypted but share converter "
+                    + convert.converter().getName() + ", each encrypted field needs its own converter class");
+        }
+    }
+
+    private static List<Class<?>> findEntityClasses(BeanFactory beanFactory) {
+        List<String> packages = EntityScanPackages.get(beanFactory).getPackageNames();
+        if (packages.isEmpty() && AutoConfigurationPackages.has(beanFactory)) {
+            packages = AutoConfigurationPackages.get(beanFactory);
+        }
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        List<Class<?>> entityClasses = new ArrayList<>();
+        for (String entityPackage : packages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(entityPackage)) {
+                entityClasses.add(ClassUtils.resolveClassName(candidate.getBeanClassName(), EncryptionPolicies.class.getClassLoader()));
+            }
+        }
+        return entityClasses;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Algorithm;
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Encoding;
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Mode;
+
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Steps executed by a crypto converter for one field, compiled once from its {@link Encrypted} policy.
+ * Steps which are not part of the policy (random IV, compression, caching, canonicalization) are skipped entirely.
+ */
+final class FieldCodecPlan {
+
+    static final FieldCodecPlan DEFAULT = new FieldCodecPlan(null, Algorithm.AES_CBC, Mode.DETERMINISTIC, false, false, false, 0, 0, Encoding.BASE64);
+
+    private static final int GCM_TAG_LENGTH_BITS = 128;
+    private static final IvSource IV_SOURCE = new IvSource(IvSource.DEFAULT_STRIPE_COUNT, IvSource.DEFAULT_RESEED_INTERVAL);
+
+    private final String fieldName;
+    private final String cipherInstanceName;
+    private final boolean gcm;
+    private final int ivLength;
+    private final boolean keyDerived;
+    private final boolean compressed;
+    private final boolean cached;
+    private final int cacheSize;
+    private final StringCanonicalizer canonicalizer;
+    private final Base64.Encoder encoder;
+    private final Base64.Decoder decoder;
+
+    /**
+     * @param canonicalizationTableSize size of the canonicalization table of decrypted values, {@code 0} to disable it
+     */
+    FieldCodecPlan(String fieldName, Algorithm algorithm, Mode mode, boolean keyDerived, boolean compressed, boolean cached, int cacheSize,
+                   int canonicalizationTableSize, Encoding encoding) {
+        this.fieldName = fieldName;
+        this.gcm = algorithm == Algorithm.AES_GCM;
+        this.cipherInstanceName = gcm ? "AES/GCM/NoPadding" : "AES/CBC/PKCS5Padding";
+        this.ivLength = mode == Mode.DETERMINISTIC ? 0 : gcm ? 12 : 16;
+        this.keyDerived = keyDerived;
+        this.compressed = compressed;
+        // Caching ciphertexts by value would give equal ciphertexts for equal values, defeating randomized mode
+        this.cached = cached && mode == Mode.DETERMINISTIC;
+        this.cacheSize = cacheSize;
+        this.canonicalizer = canonicalizationTableSize > 0 ? new StringCanonicalizer(canonicalizationTableSize) : null;
+        this.encoder = encoding == Encoding.BASE64_URL ? Base64.getUrlEncoder().withoutPadding() : Base64.getEncoder();
+        this.decoder = encoding == Encoding.BASE64_URL ? Base64.getUrlDecoder() : Base64.getDecoder();
+    }
+
+    String getFieldName() {
+        return fieldName;
+    }
+
+    String getCipherInstanceName() {
+        return cipherInstanceName;
+    }
+
+    boolean isRandomized() {
+        return ivLength > 0;
+    }
+
+    boolean isKeyDerived() {
+        return keyDerived;
+    }
+
+    boolean isCached() {
+        return cached;
+    }
+
+    int getCacheSize() {
+        return cacheSize;
+    }
+
+    boolean isCanonicalized() {
+        return canonicalizer != null;
+    }
+
+    CanonicalizationStatistics canonicalizationStatistics() {
+        return canonicalizer.statistics();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T canonicalize(T attribute) {
+        return canonicalizer == null || !(attribute instanceof String) ? attribute : (T) canonicalizer.canonicalize((String) attribute);
+    }
+
+    /**
+     * @return a new random IV, or {@code null} in deterministic mode where the IV of the {@link CryptoContext} is used
+     */
+    byte[] generateIv() {
+        if (ivLength == 0) {
+            return null;
+        }
+        return IV_SOURCE.nextIv(ivLength);
+    }
+
+    AlgorithmParameterSpec algorithmParameters(byte[] iv) {
+        return gcm ? new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv) : new IvParameterSpec(iv);
+    }
+
+    byte[] extractIv(byte[] decodedBytes) {
+        return ivLength == 0 ? null : Arrays.copyOf(checkIvPrefixed(decodedBytes), ivLength);
+    }
+
+    byte[] extractEncryptedBytes(byte[] decodedBytes) {
+        return ivLength == 0 ? decodedBytes : Arrays.copyOfRange(checkIvPrefixed(decodedBytes), ivLength, decodedBytes.length);
+    }
+
+    private byte[] checkIvPrefixed(byte[] decodedBytes) {
+        // Truncated values would otherwise be decrypted with a zero-padded IV, or fail with an unrelated exception
+        if (decodedBytes.length <= ivLength) {
+            throw new IllegalArgumentException("Encrypted value of " + fieldName + " has " + decodedBytes.length
+                    + " bytes, but must hold a " + ivLength + "-byte IV followed by encrypted bytes");
+        }
+        return decodedBytes;
+    }
+
+    String encode(byte[] iv, byte[] encryptedBytes) {
+        if (iv == null) {
+            return encoder.encodeToString(encryptedBytes);
+        }
+        byte[] ivAndEncryptedBytes = Arrays.copyOf(iv, iv.length + encryptedBytes.length);
+        System.arraycopy(encryptedBytes, 0, ivAndEncryptedBytes, iv.length, encryptedBytes.length);
+        return encoder.encodeToString(ivAndEncryptedBytes);
+    }
+
+    byte[] decode(String dbData) {
+        return decoder.decode(dbData);
+    }
+
+    byte[] compress(byte[] bytes) {
+        if (!compressed) {
+            return bytes;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length);
+            byte[] buffer = new byte[Math.max(64, bytes.length)];
+            while (!deflater.finished()) {
+                outputStream.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    byte[] decompress(byte[] bytes) {
+        if (!compressed) {
+            return bytes;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 2);
+            byte[] buffer = new byte[Math.max(64, bytes.length * 2)];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed value of field " + fieldName);
+                }
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed value of field " + fieldName, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * HMAC-based key derivation function with SHA-256 (RFC 5869): {@link #extract} turns input key material into a
+ * pseudorandom key once, then {@link #expand} derives as many independent subkeys from it as there are distinct
+ * {@code info} values.
+ */
+final class Hkdf {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+
+    private Hkdf() {
+    }
+
+    /**
+     * @param salt optional salt, {@code null} for a salt of {@value #HASH_LENGTH} zeros
+     */
+    static byte[] extract(byte[] salt, byte[] inputKeyMaterial) {
+        Mac mac = newMac(salt == null || salt.length == 0 ? new byte[HASH_LENGTH] : salt);
+        return mac.doFinal(inputKeyMaterial);
+    }
+
+    static byte[] expand(byte[] pseudoRandomKey, byte[] info, int length) {
+        if (length <= 0 || length > 255 * HASH_LENGTH) {
+            throw new IllegalArgumentException("Cannot derive " + length + " bytes");
+        }
+        Mac mac = newMac(pseudoRandomKey);
+        byte[] output = new byte[length];
+        byte[] block = new byte[0];
+        for (int counter = 1, offset = 0; offset < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            System.arraycopy(block, 0, output, offset, Math.min(block.length, length - offset));
+            offset += block.length;
+        }
+        Arrays.fill(block, (byte) 0);
+        return output;
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + MAC_ALGORITHM, e);
+        }
+    }
+}
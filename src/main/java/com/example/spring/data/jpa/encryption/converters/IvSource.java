@@ -0,0 +1,146 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import java.nio.ByteBuffer;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.security.DrbgParameters.Capability.RESEED_ONLY;
+
+/**
+ * Generates random IVs with little contention between threads, from {@code stripeCount} DRBGs (NIST SP 800-90A), by
+ * default one per available processor. Each one is instantiated on first use with entropy from the system source and
+ * a personalization string unique to it, and reseeded from the system source every {@code reseedInterval} IVs.
+ * <p>
+ * A thread draws from the first stripe it can lock without waiting, starting from one picked by its id, as
+ * {@link CipherPool} picks its slots, and only waits for a stripe when all of them are in use. A shared
+ * {@link SecureRandom} would serialize all encrypting threads on its lock, and a DRBG per thread would grow with the
+ * number of threads.
+ * <p>
+ * DRBG output is drawn by blocks of {@value #BLOCK_LENGTH} bytes, which IVs are then cut from, as the cost of a DRBG
+ * call barely depends on the number of bytes it returns. Bytes are never handed out twice.
+ */
+final class IvSource {
+
+    static final int DEFAULT_STRIPE_COUNT = Runtime.getRuntime().availableProcessors();
+    static final long DEFAULT_RESEED_INTERVAL = 1 << 20;
+
+    private static final String DRBG_ALGORITHM = "DRBG";
+    private static final int SECURITY_STRENGTH_BITS = 256;
+    private static final int BLOCK_LENGTH = 1024;
+
+    private final int stripeCount;
+    private final long reseedInterval;
+    private final AtomicLong stripeSequence = new AtomicLong();
+    private final AtomicReferenceArray<Stripe> stripes;
+
+    IvSource(int stripeCount, long reseedInterval) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+        if (reseedInterval <= 0) {
+            throw new IllegalArgumentException("Reseed interval must be positive: " + reseedInterval);
+        }
+        this.stripeCount = stripeCount;
+        this.reseedInterval = reseedInterval;
+        this.stripes = new AtomicReferenceArray<>(stripeCount);
+    }
+
+    byte[] nextIv(int length) {
+        if (length > BLOCK_LENGTH) {
+            throw new IllegalArgumentException("IV length must be at most " + BLOCK_LENGTH + ": " + length);
+        }
+        byte[] iv = new byte[length];
+        int start = probe();
+        for (int i = 0; i < stripeCount; i++) {
+            Stripe stripe = stripe((start + i) % stripeCount);
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.nextBytes(iv);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                return iv;
+            }
+        }
+        // All stripes are in use: more threads are encrypting than there are stripes
+        Stripe stripe = stripe(start);
+        stripe.lock.lock();
+        try {
+            stripe.nextBytes(iv);
+        } finally {
+            stripe.lock.unlock();
+        }
+        return iv;
+    }
+
+    int createdStripeCount() {
+        int createdStripeCount = 0;
+        for (int index = 0; index < stripeCount; index++) {
+            if (stripes.get(index) != null) {
+                createdStripeCount++;
+            }
+        }
+        return createdStripeCount;
+    }
+
+    private Stripe stripe(int index) {
+        Stripe stripe = stripes.get(index);
+        if (stripe == null) {
+            // Two threads may instantiate the same stripe, only one of them is kept
+            Stripe newStripe = newStripe(index);
+            stripe = stripes.compareAndSet(index, null, newStripe) ? newStripe : stripes.get(index);
+        }
+        return stripe;
+    }
+
+    private int probe() {
+        // Threads start from different stripes, so that they rarely compete for the same one
+        return (int) (Thread.currentThread().getId() % stripeCount);
+    }
+
+    private Stripe newStripe(int index) {
+        byte[] personalizationString = ByteBuffer.allocate(3 * Long.BYTES)
+                .putLong(stripeSequence.incrementAndGet())
+                .putLong(index)
+                .putLong(System.nanoTime())
+                .array();
+        try {
+            return new Stripe(SecureRandom.getInstance(DRBG_ALGORITHM,
+                    DrbgParameters.instantiation(SECURITY_STRENGTH_BITS, RESEED_ONLY, personalizationString)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No " + DRBG_ALGORITHM + " implementation available", e);
+        }
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom drbg;
+        private final byte[] block = new byte[BLOCK_LENGTH];
+        private int blockPosition = BLOCK_LENGTH;
+        private long ivsSinceReseed;
+
+        private Stripe(SecureRandom drbg) {
+            this.drbg = drbg;
+        }
+
+        private void nextBytes(byte[] bytes) {
+            if (++ivsSinceReseed > reseedInterval) {
+                drbg.reseed();
+                ivsSinceReseed = 1;
+                // Bytes generated before the reseed are not used anymore
+                blockPosition = BLOCK_LENGTH;
+            }
+            if (BLOCK_LENGTH - blockPosition < bytes.length) {
+                drbg.nextBytes(block);
+                blockPosition = 0;
+            }
+            System.arraycopy(block, blockPosition, bytes, 0, bytes.length);
+            blockPosition += bytes.length;
+        }
+    }
+}
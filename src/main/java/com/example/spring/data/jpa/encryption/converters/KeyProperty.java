@@ -1,16 +1,31 @@
 package com.example.spring.data.jpa.encryption.converters;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+
 @Component
+@Lazy(false)
 public class KeyProperty {
 
-    public static String DATABASE_ENCRYPTION_KEY;
+    private final CipherInitializer cipherInitializer = new CipherInitializer();
+
+    private final CryptoContextHolder cryptoContextHolder;
+
+    public KeyProperty(CryptoContextHolder cryptoContextHolder) {
+        this.cryptoContextHolder = cryptoContextHolder;
+    }
 
     @Value("${example.database.encryption.key}")
     public void setDatabase(String databaseEncryptionKey) {
-        DATABASE_ENCRYPTION_KEY = databaseEncryptionKey;
+        try {
+            cryptoContextHolder.set(cipherInitializer.createCryptoContext(databaseEncryptionKey));
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new RuntimeException(e);
+        }
     }
 
 }
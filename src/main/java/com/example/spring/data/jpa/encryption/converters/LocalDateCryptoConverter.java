@@ -10,11 +10,15 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 public class LocalDateCryptoConverter extends AbstractCryptoConverter<LocalDate> {
 
     public LocalDateCryptoConverter() {
-        this(new CipherInitializer());
+        this(new CryptoContextHolder());
     }
 
-    public LocalDateCryptoConverter(CipherInitializer cipherInitializer) {
-        super(cipherInitializer);
+    public LocalDateCryptoConverter(CryptoContextHolder cryptoContextHolder) {
+        this(new CipherInitializer(), cryptoContextHolder);
+    }
+
+    public LocalDateCryptoConverter(CipherInitializer cipherInitializer, CryptoContextHolder cryptoContextHolder) {
+        super(cipherInitializer, cryptoContextHolder);
     }
 
     @Override
@@ -10,11 +10,15 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 public class LocalDateTimeCryptoConverter extends AbstractCryptoConverter<LocalDateTime> {
 
     public LocalDateTimeCryptoConverter() {
-        this(new CipherInitializer());
+        this(new CryptoContextHolder());
     }
 
-    public LocalDateTimeCryptoConverter(CipherInitializer cipherInitializer) {
-        super(cipherInitializer);
+    public LocalDateTimeCryptoConverter(CryptoContextHolder cryptoContextHolder) {
+        this(new CipherInitializer(), cryptoContextHolder);
+    }
+
+    public LocalDateTimeCryptoConverter(CipherInitializer cipherInitializer, CryptoContextHolder cryptoContextHolder) {
+        super(cipherInitializer, cryptoContextHolder);
     }
 
     @Override
@@ -0,0 +1,62 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of canonical instances of decrypted strings, so that equal values read in bulk share one instance
+ * instead of each row retaining its own copy. The table is direct-mapped: a value replaces the one in its slot on a
+ * miss, so the table never grows. Instances are only weakly referenced, so the table never retains a value which
+ * is not used anymore.
+ */
+final class StringCanonicalizer {
+
+    // Header of the String and of its byte array, with compact strings of the JDK 9+
+    private static final int STRING_OVERHEAD_BYTES = 24 + 16;
+
+    private final AtomicReferenceArray<WeakReference<String>> table;
+    private final int mask;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * @param size number of slots, rounded up to a power of two
+     */
+    StringCanonicalizer(int size) {
+        int capacity = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    String canonicalize(String value) {
+        lookups.increment();
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        WeakReference<String> reference = table.get(slot);
+        String canonicalValue = reference == null ? null : reference.get();
+        if (value.equals(canonicalValue)) {
+            hits.increment();
+            savedBytes.add(estimateRetainedBytes(value));
+            return canonicalValue;
+        }
+        table.set(slot, new WeakReference<>(value));
+        return value;
+    }
+
+    CanonicalizationStatistics statistics() {
+        return new CanonicalizationStatistics(lookups.sum(), hits.sum(), savedBytes.sum());
+    }
+
+    private static long estimateRetainedBytes(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING_OVERHEAD_BYTES + ((value.length() * bytesPerChar + 7) & ~7);
+    }
+}
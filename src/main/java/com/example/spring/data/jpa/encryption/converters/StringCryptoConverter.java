@@ -8,11 +8,15 @@ import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 public class StringCryptoConverter extends AbstractCryptoConverter<String> {
 
     public StringCryptoConverter() {
-        this(new CipherInitializer());
+        this(new CryptoContextHolder());
     }
 
-    public StringCryptoConverter(CipherInitializer cipherInitializer) {
-        super(cipherInitializer);
+    public StringCryptoConverter(CryptoContextHolder cryptoContextHolder) {
+        this(new CipherInitializer(), cryptoContextHolder);
+    }
+
+    public StringCryptoConverter(CipherInitializer cipherInitializer, CryptoContextHolder cryptoContextHolder) {
+        super(cipherInitializer, cryptoContextHolder);
     }
 
     @Override
@@ -0,0 +1,98 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of the {@link CryptoContext} of each tenant, so that resolving the context of a known tenant costs a
+ * single map lookup. Tenants which are not used for longer than the idle timeout are evicted, and the least recently
+ * used tenant is evicted when the cache is full.
+ */
+@Component
+public class TenantCryptoContextCache {
+
+    private static final long ACCESS_TIME_GRANULARITY_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final Map<String, CachedCryptoContext> cachedCryptoContexts = new ConcurrentHashMap<>();
+
+    private final Function<String, CryptoContext> cryptoContextLoader;
+    private final int maxCachedTenants;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public TenantCryptoContextCache(TenantKeyProperties tenantKeyProperties) {
+        this(tenantId -> createCryptoContext(tenantId, tenantKeyProperties.getKeys().get(tenantId)),
+                tenantKeyProperties.getMaxCachedTenants(), tenantKeyProperties.getIdleTimeout(), System::nanoTime);
+    }
+
+    public TenantCryptoContextCache(Function<String, CryptoContext> cryptoContextLoader, int maxCachedTenants, Duration idleTimeout, LongSupplier nanoClock) {
+        this.cryptoContextLoader = cryptoContextLoader;
+        this.maxCachedTenants = maxCachedTenants;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public CryptoContext get(String tenantId) {
+        long now = nanoClock.getAsLong();
+        CachedCryptoContext cachedCryptoContext = cachedCryptoContexts.get(tenantId);
+        if (cachedCryptoContext == null) {
+            cachedCryptoContext = cachedCryptoContexts.computeIfAbsent(tenantId, id -> new CachedCryptoContext(cryptoContextLoader.apply(id), now));
+            evictTenants(now);
+        } else if (now - cachedCryptoContext.lastAccessTime > ACCESS_TIME_GRANULARITY_NANOS) {
+            // Only refreshed once in a while, to avoid writing to a shared field on every conversion
+            cachedCryptoContext.lastAccessTime = now;
+        }
+        return cachedCryptoContext.cryptoContext;
+    }
+
+    public int size() {
+        return cachedCryptoContexts.size();
+    }
+
+    @Scheduled(fixedDelayString = "${example.database.encryption.tenants.eviction-interval-millis:60000}")
+    public void evictIdleTenants() {
+        evictTenants(nanoClock.getAsLong());
+    }
+
+    private void evictTenants(long now) {
+        cachedCryptoContexts.values().removeIf(cachedCryptoContext -> now - cachedCryptoContext.lastAccessTime > idleTimeoutNanos);
+        while (cachedCryptoContexts.size() > maxCachedTenants) {
+            cachedCryptoContexts.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastAccessTime))
+                    .ifPresent(entry -> cachedCryptoContexts.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static CryptoContext createCryptoContext(String tenantId, String key) {
+        if (key == null) {
+            throw new IllegalStateException("No encryption key configured for tenant " + tenantId);
+        }
+        try {
+            return new CipherInitializer().createCryptoContext(key);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class CachedCryptoContext {
+
+        private final CryptoContext cryptoContext;
+        private volatile long lastAccessTime;
+
+        private CachedCryptoContext(CryptoContext cryptoContext, long lastAccessTime) {
+            this.cryptoContext = cryptoContext;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+}
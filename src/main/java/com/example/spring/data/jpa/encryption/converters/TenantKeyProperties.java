@@ -0,0 +1,43 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "example.database.encryption.tenants")
+public class TenantKeyProperties {
+
+    private Map<String, String> keys = new HashMap<>();
+
+    private int maxCachedTenants = 1000;
+
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    public Map<String, String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(Map<String, String> keys) {
+        this.keys = keys;
+    }
+
+    public int getMaxCachedTenants() {
+        return maxCachedTenants;
+    }
+
+    public void setMaxCachedTenants(int maxCachedTenants) {
+        this.maxCachedTenants = maxCachedTenants;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Keeps the birth date bucket token of a {@link User} in line with its birth date before it is written.
+ */
+public class BirthDateBucketIndexListener {
+
+    private final BirthDateBucketIndex birthDateBucketIndex;
+
+    public BirthDateBucketIndexListener() {
+        this.birthDateBucketIndex = BirthDateBucketIndex.disabled();
+    }
+
+    @Autowired
+    public BirthDateBucketIndexListener(ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex) {
+        this.birthDateBucketIndex = birthDateBucketIndex.getIfAvailable(BirthDateBucketIndex::disabled);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateBirthDateBucket(User user) {
+        user.setBirthDateBucket(birthDateBucketIndex.token(user.getBirthDate()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import org.hibernate.annotations.ColumnTransformer;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * Same data as {@link User}, encrypted by the database engine instead of JPA converters: values are encrypted and
+ * decrypted with the H2 {@code ENCRYPT} and {@code DECRYPT} functions, using the key set in the
+ * {@code @encryption_key} session variable of each connection by
+ * {@link com.example.spring.data.jpa.encryption.converters.DatabaseEncryptionKeyDataSource}.
+ * <p>
+ * H2 pads values with zeros up to the AES block size, and encrypts each block independently with the same key, so
+ * equal blocks of different values give equal ciphertext blocks. A {@code '.'} is appended to each value before it is
+ * encrypted, and removed with the zero padding after it is decrypted, so that values ending with {@code NUL}
+ * characters are read back unchanged.
+ */
+@Entity
+@Table(name = "database_encrypted_user")
+public class DatabaseEncryptedUser {
+
+    private static final String ENCRYPTED = "encrypt('AES', @encryption_key, stringtoutf8(cast(? as varchar) || '.'))";
+    private static final String DECRYPTED_PREFIX = "regexp_replace(utf8tostring(decrypt('AES', @encryption_key, ";
+    // Removes the end marker and the zero padding following it
+    private static final String DECRYPTED_SUFFIX = ")), '\\.\\x00*$', '')";
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "first_name", columnDefinition = "varbinary(1024)")
+    @ColumnTransformer(read = DECRYPTED_PREFIX + "first_name" + DECRYPTED_SUFFIX, write = ENCRYPTED)
+    private String firstName;
+
+    @Column(name = "last_name", columnDefinition = "varbinary(1024)")
+    @ColumnTransformer(read = DECRYPTED_PREFIX + "last_name" + DECRYPTED_SUFFIX, write = ENCRYPTED)
+    private String lastName;
+
+    @Column(name = "email", columnDefinition = "varbinary(1024)")
+    @ColumnTransformer(read = DECRYPTED_PREFIX + "email" + DECRYPTED_SUFFIX, write = ENCRYPTED)
+    private String email;
+
+    @Column(name = "birth_date", columnDefinition = "varbinary(32)")
+    @ColumnTransformer(read = "cast(" + DECRYPTED_PREFIX + "birth_date" + DECRYPTED_SUFFIX + " as date)", write = ENCRYPTED)
+    private LocalDate birthDate;
+
+    @Column(name = "creation_date", columnDefinition = "varbinary(48)")
+    @ColumnTransformer(read = "cast(" + DECRYPTED_PREFIX + "creation_date" + DECRYPTED_SUFFIX + " as timestamp)", write = ENCRYPTED)
+    private LocalDateTime creationDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Only created when database-side encryption is enabled, see
+ * {@link com.example.spring.data.jpa.encryption.converters.DatabaseEncryptionConfiguration}.
+ */
+@ConditionalOnProperty(name = "example.database.encryption.database-side.enabled", havingValue = "true")
+public interface DatabaseEncryptedUserRepository extends JpaRepository<DatabaseEncryptedUser, Long> {
+}
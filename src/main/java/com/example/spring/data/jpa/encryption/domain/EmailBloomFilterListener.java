@@ -0,0 +1,75 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.index.EmailBloomFilter;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Objects;
+
+/**
+ * Keeps the {@link EmailBloomFilter} in line with the emails of the {@link User} entities written through JPA, when
+ * the filter is enabled. New emails are added as soon as they are written, while replaced and deleted emails are
+ * only removed once the transaction is committed, so that a rollback never leaves a stored email out of the filter.
+ * <p>
+ * Users written for a tenant are left out: the filter only holds the emails readable with the default key, and
+ * removing the email of a tenant user it never counted would hide a stored email.
+ */
+public class EmailBloomFilterListener {
+
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired(required = false)
+    public void setEmailBloomFilter(EmailBloomFilter emailBloomFilter) {
+        this.emailBloomFilter = emailBloomFilter;
+    }
+
+    @PostLoad
+    void rememberStoredEmail(User user) {
+        user.setStoredEmail(user.getEmail());
+    }
+
+    @PostPersist
+    @PostUpdate
+    void addEmail(User user) {
+        String storedEmail = user.getStoredEmail();
+        if (isFiltered() && !Objects.equals(user.getEmail(), storedEmail)) {
+            emailBloomFilter.add(user.getEmail());
+            removeAfterCommit(storedEmail);
+        }
+        user.setStoredEmail(user.getEmail());
+    }
+
+    @PostRemove
+    void removeEmail(User user) {
+        if (isFiltered()) {
+            removeAfterCommit(user.getStoredEmail());
+        }
+    }
+
+    private boolean isFiltered() {
+        // The filter is never consulted when a tenant is set
+        return emailBloomFilter != null && TenantContext.getCurrentTenant() == null;
+    }
+
+    private void removeAfterCommit(String email) {
+        if (email == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            emailBloomFilter.remove(email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                emailBloomFilter.remove(email);
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import java.util.Set;
+
+/**
+ * Keeps the last name prefix tokens of a {@link User} in line with its last name before it is written.
+ */
+public class LastNamePrefixIndexListener {
+
+    private final PrefixBlindIndex prefixBlindIndex;
+
+    public LastNamePrefixIndexListener() {
+        this(PrefixBlindIndex.disabled());
+    }
+
+    @Autowired
+    public LastNamePrefixIndexListener(PrefixBlindIndex prefixBlindIndex) {
+        this.prefixBlindIndex = prefixBlindIndex;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateLastNamePrefixTokens(User user) {
+        Set<String> tokens = prefixBlindIndex.tokens(user.getLastName());
+        Set<String> currentTokens = user.getLastNamePrefixTokens();
+        if (!currentTokens.equals(tokens)) {
+            // Updated in place, so that Hibernate detects the change of the collection during the current flush
+            currentTokens.retainAll(tokens);
+            currentTokens.addAll(tokens);
+        }
+    }
+}
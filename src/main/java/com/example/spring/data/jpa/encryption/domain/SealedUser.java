@@ -0,0 +1,83 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.Encrypted;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static com.example.spring.data.jpa.encryption.converters.Encrypted.Algorithm.AES_GCM;
+import static com.example.spring.data.jpa.encryption.converters.Encrypted.Mode.RANDOMIZED;
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * Same data as {@link User}, for users which are always read whole: all sensitive fields are sealed into a single
+ * encrypted column, which costs one cipher operation per row instead of one per field. Fields cannot be searched, so
+ * the column is encrypted in randomized and authenticated mode.
+ */
+@Entity
+@Table(name = "sealed_user")
+public class SealedUser {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "sealed_fields", length = 2048)
+    @Encrypted(algorithm = AES_GCM, mode = RANDOMIZED, derivedKey = true)
+    @Convert(converter = UserConverters.SealedFields.class)
+    private SealedUserFields fields = SealedUserFields.EMPTY;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return fields().getFirstName();
+    }
+
+    public void setFirstName(String firstName) {
+        this.fields = fields().withFirstName(firstName);
+    }
+
+    public String getLastName() {
+        return fields().getLastName();
+    }
+
+    public void setLastName(String lastName) {
+        this.fields = fields().withLastName(lastName);
+    }
+
+    public String getEmail() {
+        return fields().getEmail();
+    }
+
+    public void setEmail(String email) {
+        this.fields = fields().withEmail(email);
+    }
+
+    public LocalDate getBirthDate() {
+        return fields().getBirthDate();
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.fields = fields().withBirthDate(birthDate);
+    }
+
+    public LocalDateTime getCreationDate() {
+        return fields().getCreationDate();
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.fields = fields().withCreationDate(creationDate);
+    }
+
+    private SealedUserFields fields() {
+        return fields != null ? fields : SealedUserFields.EMPTY;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import org.hibernate.annotations.Immutable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Sensitive fields of a {@link SealedUser}, stored together as one encrypted record. Instances are immutable, so that
+ * Hibernate detects changes by comparing them with {@link #equals(Object)}.
+ * <p>
+ * The binary form starts with a format version and a bit set of the non-null fields, followed by the non-null fields
+ * only: strings as modified UTF-8, dates as epoch day, timestamps as UTC epoch second and nanoseconds.
+ */
+@Immutable
+public final class SealedUserFields {
+
+    public static final SealedUserFields EMPTY = new SealedUserFields(null, null, null, null, null);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 1 << 1;
+    private static final int EMAIL = 1 << 2;
+    private static final int BIRTH_DATE = 1 << 3;
+    private static final int CREATION_DATE = 1 << 4;
+
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final LocalDate birthDate;
+    private final LocalDateTime creationDate;
+
+    public SealedUserFields(String firstName, String lastName, String email, LocalDate birthDate, LocalDateTime creationDate) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.birthDate = birthDate;
+        this.creationDate = creationDate;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public SealedUserFields withFirstName(String firstName) {
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    public SealedUserFields withLastName(String lastName) {
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    public SealedUserFields withEmail(String email) {
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    public SealedUserFields withBirthDate(LocalDate birthDate) {
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    public SealedUserFields withCreationDate(LocalDateTime creationDate) {
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte((firstName != null ? FIRST_NAME : 0) | (lastName != null ? LAST_NAME : 0) | (email != null ? EMAIL : 0)
+                | (birthDate != null ? BIRTH_DATE : 0) | (creationDate != null ? CREATION_DATE : 0));
+        if (firstName != null) {
+            output.writeUTF(firstName);
+        }
+        if (lastName != null) {
+            output.writeUTF(lastName);
+        }
+        if (email != null) {
+            output.writeUTF(email);
+        }
+        if (birthDate != null) {
+            output.writeLong(birthDate.toEpochDay());
+        }
+        if (creationDate != null) {
+            output.writeLong(creationDate.toEpochSecond(UTC));
+            output.writeInt(creationDate.getNano());
+        }
+    }
+
+    static SealedUserFields readFrom(DataInput input) throws IOException {
+        int formatVersion = input.readUnsignedByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported sealed user fields format version " + formatVersion);
+        }
+        int presentFields = input.readUnsignedByte();
+        String firstName = (presentFields & FIRST_NAME) != 0 ? input.readUTF() : null;
+        String lastName = (presentFields & LAST_NAME) != 0 ? input.readUTF() : null;
+        String email = (presentFields & EMAIL) != 0 ? input.readUTF() : null;
+        LocalDate birthDate = (presentFields & BIRTH_DATE) != 0 ? LocalDate.ofEpochDay(input.readLong()) : null;
+        LocalDateTime creationDate = (presentFields & CREATION_DATE) != 0 ? LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), UTC) : null;
+        return new SealedUserFields(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SealedUserFields that = (SealedUserFields) o;
+        return Objects.equals(firstName, that.firstName) && Objects.equals(lastName, that.lastName) && Objects.equals(email, that.email)
+                && Objects.equals(birthDate, that.birthDate) && Objects.equals(creationDate, that.creationDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(firstName, lastName, email, birthDate, creationDate);
+    }
+
+    @Override
+    public String toString() {
+        // Never print sensitive values
+        return "SealedUserFields@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SealedUserRepository extends JpaRepository<SealedUser, Long> {
+}
@@ -1,17 +1,18 @@
 package com.example.spring.data.jpa.encryption.domain;
 
-import com.example.spring.data.jpa.encryption.converters.LocalDateCryptoConverter;
-import com.example.spring.data.jpa.encryption.converters.LocalDateTimeCryptoConverter;
-import com.example.spring.data.jpa.encryption.converters.StringCryptoConverter;
+import com.example.spring.data.jpa.encryption.converters.Encrypted;
 
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.IDENTITY;
 
 @Entity
-@Table(name = "user")
+@Table(name = "user", indexes = @Index(name = "user_birth_date_bucket_idx", columnList = "birth_date_bucket"))
+@EntityListeners({LastNamePrefixIndexListener.class, BirthDateBucketIndexListener.class, EmailBloomFilterListener.class})
 public class User {
 
     @Id
@@ -20,25 +21,43 @@ public class User {
     private Long id;
 
     @Column(name = "first_name")
-    @Convert(converter = StringCryptoConverter.class)
+    @Encrypted(cache = true)
+    @Convert(converter = UserConverters.FirstName.class)
     private String firstName;
 
     @Column(name = "last_name")
-    @Convert(converter = StringCryptoConverter.class)
+    @Encrypted(canonicalize = true)
+    @Convert(converter = UserConverters.LastName.class)
     private String lastName;
 
     @Column(name = "email")
-    @Convert(converter = StringCryptoConverter.class)
+    @Encrypted
+    @Convert(converter = UserConverters.Email.class)
     private String email;
 
     @Column(name = "birth_date")
-    @Convert(converter = LocalDateCryptoConverter.class)
+    @Encrypted(cache = true)
+    @Convert(converter = UserConverters.BirthDate.class)
     private LocalDate birthDate;
 
+    @Column(name = "birth_date_bucket", length = 22)
+    private String birthDateBucket;
+
     @Column(name = "creation_date")
-    @Convert(converter = LocalDateTimeCryptoConverter.class)
+    @Encrypted
+    @Convert(converter = UserConverters.CreationDate.class)
     private LocalDateTime creationDate;
 
+    @ElementCollection
+    @CollectionTable(name = "user_last_name_prefix", joinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "user_last_name_prefix_token_idx", columnList = "token"))
+    @Column(name = "token", length = 22)
+    private Set<String> lastNamePrefixTokens = new HashSet<>();
+
+    // Email as last read from or written to the database, which is the one to remove from the email filter
+    @Transient
+    private String storedEmail;
+
     public Long getId() {
         return id;
     }
@@ -86,4 +105,24 @@ public class User {
     public void setCreationDate(LocalDateTime creationDate) {
         this.creationDate = creationDate;
     }
+
+    Set<String> getLastNamePrefixTokens() {
+        return lastNamePrefixTokens;
+    }
+
+    String getBirthDateBucket() {
+        return birthDateBucket;
+    }
+
+    void setBirthDateBucket(String birthDateBucket) {
+        this.birthDateBucket = birthDateBucket;
+    }
+
+    String getStoredEmail() {
+        return storedEmail;
+    }
+
+    void setStoredEmail(String storedEmail) {
+        this.storedEmail = storedEmail;
+    }
 }
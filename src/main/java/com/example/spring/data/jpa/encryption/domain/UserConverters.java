@@ -0,0 +1,48 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.LocalDateCryptoConverter;
+import com.example.spring.data.jpa.encryption.converters.LocalDateTimeCryptoConverter;
+import com.example.spring.data.jpa.encryption.converters.SealedCryptoConverter;
+import com.example.spring.data.jpa.encryption.converters.StringCryptoConverter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * One converter class per encrypted field of {@link User} and {@link SealedUser}, so that each field executes the plan compiled from its own
+ * {@link com.example.spring.data.jpa.encryption.converters.Encrypted} policy.
+ */
+public final class UserConverters {
+
+    private UserConverters() {
+    }
+
+    public static class FirstName extends StringCryptoConverter {
+    }
+
+    public static class LastName extends StringCryptoConverter {
+    }
+
+    public static class Email extends StringCryptoConverter {
+    }
+
+    public static class BirthDate extends LocalDateCryptoConverter {
+    }
+
+    public static class CreationDate extends LocalDateTimeCryptoConverter {
+    }
+
+    public static class SealedFields extends SealedCryptoConverter<SealedUserFields> {
+
+        @Override
+        protected void writeRecord(SealedUserFields record, DataOutput output) throws IOException {
+            record.writeTo(output);
+        }
+
+        @Override
+        protected SealedUserFields readRecord(DataInput input) throws IOException {
+            return SealedUserFields.readFrom(input);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Finds users whose last name starts with the given prefix, ignoring case and diacritics, using the last name
+     * prefix blind index instead of decrypting all last names.
+     */
+    List<User> searchByLastNamePrefix(String prefix);
+
+    /**
+     * Finds users born between the given dates, both included, in id order, using the birth date bucket index to only
+     * decrypt the birth dates of users born the months, or years, of the range.
+     */
+    List<User> searchByBirthDateBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Tells whether a user has the given email. When the email filter is enabled, emails it knows to be absent are
+     * answered without querying the database.
+     */
+    boolean existsByEmail(String email);
+}
@@ -0,0 +1,87 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.EmailBloomFilter;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final int MAX_TOKENS_PER_QUERY = 500;
+
+    private final PrefixBlindIndex prefixBlindIndex;
+    private final BirthDateBucketIndex birthDateBucketIndex;
+
+    private EmailBloomFilter emailBloomFilter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    UserRepositoryImpl(PrefixBlindIndex prefixBlindIndex, ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex) {
+        this.prefixBlindIndex = prefixBlindIndex;
+        this.birthDateBucketIndex = birthDateBucketIndex.getIfAvailable(BirthDateBucketIndex::disabled);
+    }
+
+    @Autowired(required = false)
+    void setEmailBloomFilter(EmailBloomFilter emailBloomFilter) {
+        this.emailBloomFilter = emailBloomFilter;
+    }
+
+    @Override
+    public List<User> searchByLastNamePrefix(String prefix) {
+        String searchToken = prefixBlindIndex.searchToken(prefix);
+        List<User> candidates = entityManager
+                .createQuery("select distinct u from User u join u.lastNamePrefixTokens token where token = :token", User.class)
+                .setParameter("token", searchToken)
+                .getResultList();
+
+        // Candidates are refined after decryption, for prefixes longer than the indexed ones
+        String normalizedPrefix = PrefixBlindIndex.normalize(prefix);
+        return candidates.stream()
+                .filter(user -> PrefixBlindIndex.normalize(user.getLastName()).startsWith(normalizedPrefix))
+                .collect(toList());
+    }
+
+    @Override
+    public List<User> searchByBirthDateBetween(LocalDate from, LocalDate to) {
+        List<String> searchTokens = birthDateBucketIndex.searchTokens(from, to);
+        // Users written while the index was disabled have no token yet, so they are always candidates
+        List<User> candidates = new ArrayList<>(entityManager
+                .createQuery("select u from User u where u.birthDateBucket is null", User.class)
+                .getResultList());
+        for (int i = 0; i < searchTokens.size(); i += MAX_TOKENS_PER_QUERY) {
+            candidates.addAll(entityManager
+                    .createQuery("select u from User u where u.birthDateBucket in :tokens", User.class)
+                    .setParameter("tokens", searchTokens.subList(i, Math.min(i + MAX_TOKENS_PER_QUERY, searchTokens.size())))
+                    .getResultList());
+        }
+
+        // Candidates are refined after decryption, as buckets span whole months or years
+        return candidates.stream()
+                .filter(user -> user.getBirthDate() != null && !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to))
+                .sorted(Comparator.comparing(User::getId))
+                .collect(toList());
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        if (emailBloomFilter != null && !emailBloomFilter.mightContain(email)) {
+            return false;
+        }
+        // Emails are encrypted deterministically, so the encrypted parameter matches the stored column
+        return entityManager
+                .createQuery("select count(u) from User u where u.email = :email", Long.class)
+                .setParameter("email", email)
+                .getSingleResult() > 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+
+import javax.persistence.AttributeConverter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Encrypts and decrypts rows of the {@code user} table with the same converters and blind indexes as the {@link User}
+ * entity, for components writing users without JPA, so that users are readable and searchable whichever component
+ * wrote them.
+ */
+public final class UserRowCodec {
+
+    private final AttributeConverter<String, String> firstNameConverter;
+    private final AttributeConverter<String, String> lastNameConverter;
+    private final AttributeConverter<String, String> emailConverter;
+    private final AttributeConverter<LocalDate, String> birthDateConverter;
+    private final AttributeConverter<LocalDateTime, String> creationDateConverter;
+    private final PrefixBlindIndex prefixBlindIndex;
+    private final BirthDateBucketIndex birthDateBucketIndex;
+
+    public UserRowCodec(CryptoConverterFactory cryptoConverterFactory, PrefixBlindIndex prefixBlindIndex, BirthDateBucketIndex birthDateBucketIndex) {
+        this.firstNameConverter = cryptoConverterFactory.create(UserConverters.FirstName.class);
+        this.lastNameConverter = cryptoConverterFactory.create(UserConverters.LastName.class);
+        this.emailConverter = cryptoConverterFactory.create(UserConverters.Email.class);
+        this.birthDateConverter = cryptoConverterFactory.create(UserConverters.BirthDate.class);
+        this.creationDateConverter = cryptoConverterFactory.create(UserConverters.CreationDate.class);
+        this.prefixBlindIndex = prefixBlindIndex;
+        this.birthDateBucketIndex = birthDateBucketIndex;
+    }
+
+    public EncryptedUserRow encode(User user) {
+        return new EncryptedUserRow(
+                user.getId(),
+                firstNameConverter.convertToDatabaseColumn(user.getFirstName()),
+                lastNameConverter.convertToDatabaseColumn(user.getLastName()),
+                emailConverter.convertToDatabaseColumn(user.getEmail()),
+                birthDateConverter.convertToDatabaseColumn(user.getBirthDate()),
+                creationDateConverter.convertToDatabaseColumn(user.getCreationDate()),
+                birthDateBucketIndex.token(user.getBirthDate()),
+                prefixBlindIndex.tokens(user.getLastName()));
+    }
+
+    public User decode(EncryptedUserRow encryptedUserRow) {
+        User user = new User();
+        user.setId(encryptedUserRow.getId());
+        user.setFirstName(firstNameConverter.convertToEntityAttribute(encryptedUserRow.getFirstName()));
+        user.setLastName(lastNameConverter.convertToEntityAttribute(encryptedUserRow.getLastName()));
+        user.setEmail(emailConverter.convertToEntityAttribute(encryptedUserRow.getEmail()));
+        user.setBirthDate(birthDateConverter.convertToEntityAttribute(encryptedUserRow.getBirthDate()));
+        user.setCreationDate(creationDateConverter.convertToEntityAttribute(encryptedUserRow.getCreationDate()));
+        return user;
+    }
+
+    /**
+     * Encrypted columns of a user, and the birth date bucket and last name prefix tokens to store along with them when
+     * it is written.
+     */
+    public static final class EncryptedUserRow {
+
+        private final Long id;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String birthDate;
+        private final String creationDate;
+        private final String birthDateBucket;
+        private final Set<String> lastNamePrefixTokens;
+
+        public EncryptedUserRow(Long id, String firstName, String lastName, String email, String birthDate, String creationDate) {
+            this(id, firstName, lastName, email, birthDate, creationDate, null, Collections.emptySet());
+        }
+
+        private EncryptedUserRow(Long id, String firstName, String lastName, String email, String birthDate, String creationDate, String birthDateBucket, Set<String> lastNamePrefixTokens) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.birthDate = birthDate;
+            this.creationDate = creationDate;
+            this.birthDateBucket = birthDateBucket;
+            this.lastNamePrefixTokens = lastNamePrefixTokens;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getBirthDate() {
+            return birthDate;
+        }
+
+        public String getCreationDate() {
+            return creationDate;
+        }
+
+        public String getBirthDateBucket() {
+            return birthDateBucket;
+        }
+
+        public Set<String> getLastNamePrefixTokens() {
+            return lastNamePrefixTokens;
+        }
+    }
+}
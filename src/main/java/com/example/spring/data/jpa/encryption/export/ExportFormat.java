@@ -0,0 +1,110 @@
+package com.example.spring.data.jpa.encryption.export;
+
+/**
+ * Output formats of {@link UserExporter}. Values are exported as text, {@code null} values are exported as empty CSV
+ * fields and JSON {@code null}.
+ */
+public enum ExportFormat {
+
+    CSV {
+        @Override
+        public void appendHeader(StringBuilder output, String[] columnNames) {
+            appendCsvLine(output, columnNames);
+        }
+
+        @Override
+        public void appendRow(StringBuilder output, String[] columnNames, String[] values) {
+            appendCsvLine(output, values);
+        }
+    },
+
+    JSONL {
+        @Override
+        public void appendHeader(StringBuilder output, String[] columnNames) {
+            // Each line is a self-describing JSON object
+        }
+
+        @Override
+        public void appendRow(StringBuilder output, String[] columnNames, String[] values) {
+            output.append('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    output.append(',');
+                }
+                appendJsonString(output, columnNames[i]);
+                output.append(':');
+                if (values[i] == null) {
+                    output.append("null");
+                } else {
+                    appendJsonString(output, values[i]);
+                }
+            }
+            output.append("}\n");
+        }
+    };
+
+    public abstract void appendHeader(StringBuilder output, String[] columnNames);
+
+    public abstract void appendRow(StringBuilder output, String[] columnNames, String[] values);
+
+    private static void appendCsvLine(StringBuilder output, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.append(',');
+            }
+            appendCsvField(output, values[i]);
+        }
+        output.append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder output, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quoted = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quoted) {
+            output.append(value);
+            return;
+        }
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                output.append('"');
+            }
+            output.append(c);
+        }
+        output.append('"');
+    }
+
+    private static void appendJsonString(StringBuilder output, String value) {
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    output.append("\\\"");
+                    break;
+                case '\\':
+                    output.append("\\\\");
+                    break;
+                case '\n':
+                    output.append("\\n");
+                    break;
+                case '\r':
+                    output.append("\\r");
+                    break;
+                case '\t':
+                    output.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+            }
+        }
+        output.append('"');
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.spring.data.jpa.encryption.export;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.AttributeConverter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_DATE;
+import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
+
+/**
+ * Exports all users without loading them as entities: rows are streamed from a forward-only JDBC cursor, grouped in
+ * chunks which are decrypted in parallel with the same converters as the {@code User} entity, then written in their
+ * original order. At most {@code maxPendingChunks} chunks are in memory at any time, whatever the size of the table.
+ */
+@Component
+public class UserExporter {
+
+    private static final String SELECT_USERS = "select id, first_name, last_name, email, birth_date, creation_date from user order by id";
+    private static final String[] COLUMN_NAMES = {"id", "firstName", "lastName", "email", "birthDate", "creationDate"};
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttributeConverter<String, String> firstNameConverter;
+    private final AttributeConverter<String, String> lastNameConverter;
+    private final AttributeConverter<String, String> emailConverter;
+    private final AttributeConverter<LocalDate, String> birthDateConverter;
+    private final AttributeConverter<LocalDateTime, String> creationDateConverter;
+    private final int fetchSize;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final ExecutorService decryptionExecutor;
+
+    public UserExporter(JdbcTemplate jdbcTemplate,
+                        CryptoConverterFactory cryptoConverterFactory,
+                        @Value("${example.export.fetch-size:1000}") int fetchSize,
+                        @Value("${example.export.chunk-size:1000}") int chunkSize,
+                        @Value("${example.export.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.firstNameConverter = cryptoConverterFactory.create(UserConverters.FirstName.class);
+        this.lastNameConverter = cryptoConverterFactory.create(UserConverters.LastName.class);
+        this.emailConverter = cryptoConverterFactory.create(UserConverters.Email.class);
+        this.birthDateConverter = cryptoConverterFactory.create(UserConverters.BirthDate.class);
+        this.creationDateConverter = cryptoConverterFactory.create(UserConverters.CreationDate.class);
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxPendingChunks = 2 * threads;
+        this.decryptionExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void export(OutputStream outputStream, ExportFormat format) {
+        Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+        ExportRowCallbackHandler rowCallbackHandler = new ExportRowCallbackHandler(writer, format, TenantContext.getCurrentTenant(),
+                DecryptionAuditTrail.currentScopeOr("UserExporter.export"));
+
+        StringBuilder header = new StringBuilder();
+        format.appendHeader(header, COLUMN_NAMES);
+        rowCallbackHandler.write(header);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USERS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            return preparedStatement;
+        }, rowCallbackHandler);
+
+        rowCallbackHandler.finish();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decryptionExecutor.shutdownNow();
+    }
+
+    private String[] decrypt(RawUserRow rawUserRow) {
+        LocalDate birthDate = birthDateConverter.convertToEntityAttribute(rawUserRow.birthDate);
+        LocalDateTime creationDate = creationDateConverter.convertToEntityAttribute(rawUserRow.creationDate);
+        return new String[]{
+                String.valueOf(rawUserRow.id),
+                firstNameConverter.convertToEntityAttribute(rawUserRow.firstName),
+                lastNameConverter.convertToEntityAttribute(rawUserRow.lastName),
+                emailConverter.convertToEntityAttribute(rawUserRow.email),
+                birthDate == null ? null : birthDate.format(ISO_DATE),
+                creationDate == null ? null : creationDate.format(ISO_DATE_TIME)
+        };
+    }
+
+    private final class ExportRowCallbackHandler implements RowCallbackHandler {
+
+        private final Writer writer;
+        private final ExportFormat format;
+        private final String tenantId;
+        private final String codePath;
+        private final Deque<Future<StringBuilder>> pendingChunks = new ArrayDeque<>();
+        private final char[] writeBuffer = new char[WRITER_BUFFER_SIZE];
+        private List<RawUserRow> currentChunk = new ArrayList<>(chunkSize);
+
+        private ExportRowCallbackHandler(Writer writer, ExportFormat format, String tenantId, String codePath) {
+            this.writer = writer;
+            this.format = format;
+            this.tenantId = tenantId;
+            this.codePath = codePath;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            currentChunk.add(new RawUserRow(resultSet));
+            if (currentChunk.size() == chunkSize) {
+                submitCurrentChunk();
+            }
+        }
+
+        private void submitCurrentChunk() {
+            List<RawUserRow> chunk = currentChunk;
+            currentChunk = new ArrayList<>(chunkSize);
+            pendingChunks.addLast(decryptionExecutor.submit(() -> decryptAndFormat(chunk)));
+            if (pendingChunks.size() >= maxPendingChunks) {
+                writeOldestChunk();
+            }
+        }
+
+        private StringBuilder decryptAndFormat(List<RawUserRow> chunk) {
+            TenantContext.setCurrentTenant(tenantId);
+            try {
+                return DecryptionAuditTrail.callInScope(codePath, () -> {
+                    StringBuilder output = new StringBuilder(chunk.size() * 128);
+                    for (RawUserRow rawUserRow : chunk) {
+                        format.appendRow(output, COLUMN_NAMES, decrypt(rawUserRow));
+                    }
+                    return output;
+                });
+            } finally {
+                TenantContext.clear();
+            }
+        }
+
+        private void writeOldestChunk() {
+            try {
+                write(pendingChunks.removeFirst().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelPendingChunks();
+                throw new IllegalStateException("User export was interrupted", e);
+            } catch (ExecutionException e) {
+                cancelPendingChunks();
+                throw new IllegalStateException("Cannot decrypt users to export", e.getCause());
+            }
+        }
+
+        private void write(StringBuilder output) {
+            try {
+                // Copied through a reused buffer, to avoid materializing the chunk as a String
+                for (int start = 0; start < output.length(); start += writeBuffer.length) {
+                    int end = Math.min(start + writeBuffer.length, output.length());
+                    output.getChars(start, end, writeBuffer, 0);
+                    writer.write(writeBuffer, 0, end - start);
+                }
+            } catch (IOException e) {
+                cancelPendingChunks();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void finish() {
+            if (!currentChunk.isEmpty()) {
+                submitCurrentChunk();
+            }
+            while (!pendingChunks.isEmpty()) {
+                writeOldestChunk();
+            }
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void cancelPendingChunks() {
+            pendingChunks.forEach(pendingChunk -> pendingChunk.cancel(true));
+            pendingChunks.clear();
+        }
+    }
+
+    private static final class RawUserRow {
+
+        private final long id;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String birthDate;
+        private final String creationDate;
+
+        private RawUserRow(ResultSet resultSet) throws SQLException {
+            this.id = resultSet.getLong(1);
+            this.firstName = resultSet.getString(2);
+            this.lastName = resultSet.getString(3);
+            this.email = resultSet.getString(4);
+            this.birthDate = resultSet.getString(5);
+            this.creationDate = resultSet.getString(6);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Keyed hash (HMAC-SHA256, truncated to 128 bits) of the month, or the year, of a birth date. Storing this token next
+ * to the encrypted birth date allows range queries to only decrypt the rows whose bucket intersects the range, at the
+ * cost of revealing which users were born the same month, or year. The index is disabled unless a birth date index
+ * key is configured.
+ * <p>
+ * Changing the key or the granularity makes the stored tokens unusable: users must then be written again.
+ */
+@Component
+public class BirthDateBucketIndex {
+
+    /**
+     * Token of users without birth date, so that only users written while the index was disabled have no token.
+     */
+    public static final String NO_BIRTH_DATE_TOKEN = "-";
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_LENGTH_BYTES = 16;
+
+    public enum Granularity {
+        YEAR,
+        MONTH
+    }
+
+    private final Mac macPrototype;
+    private final Granularity granularity;
+
+    public BirthDateBucketIndex(@Value("${example.database.encryption.birth-date-index.key:}") String key,
+                                @Value("${example.database.encryption.birth-date-index.granularity:MONTH}") Granularity granularity) {
+        this.macPrototype = isEmpty(key) ? null : initMac(key);
+        this.granularity = granularity;
+    }
+
+    public static BirthDateBucketIndex disabled() {
+        return new BirthDateBucketIndex(null, Granularity.MONTH);
+    }
+
+    public boolean isEnabled() {
+        return macPrototype != null;
+    }
+
+    /**
+     * @return the token of the bucket of the birth date, or {@code null} when the index is disabled
+     */
+    public String token(LocalDate birthDate) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return birthDate == null ? NO_BIRTH_DATE_TOKEN : token(newMac(), bucket(YearMonth.from(birthDate)));
+    }
+
+    /**
+     * @return the tokens of all buckets intersecting the range, bounds included; users of these buckets must then be
+     * refined after decryption
+     */
+    public List<String> searchTokens(LocalDate from, LocalDate to) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Birth date bucket index is not enabled, configure a birth date index key");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Range start " + from + " is after its end " + to);
+        }
+        Mac mac = newMac();
+        List<String> tokens = new ArrayList<>();
+        YearMonth last = YearMonth.from(to);
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(last); month = next(month)) {
+            tokens.add(token(mac, bucket(month)));
+        }
+        return tokens;
+    }
+
+    private String bucket(YearMonth month) {
+        return granularity == Granularity.YEAR ? Integer.toString(month.getYear()) : month.toString();
+    }
+
+    private YearMonth next(YearMonth month) {
+        return granularity == Granularity.YEAR ? month.plusYears(1).withMonth(1) : month.plusMonths(1);
+    }
+
+    private Mac newMac() {
+        try {
+            // Cloning an initialized Mac is much cheaper than looking it up and initializing it again
+            return (Mac) macPrototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String token(Mac mac, String bucket) {
+        byte[] hash = mac.doFinal(bucket.getBytes(UTF_8));
+        return Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, TOKEN_LENGTH_BYTES));
+    }
+
+    private static Mac initMac(String key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key.getBytes(UTF_8), MAC_ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
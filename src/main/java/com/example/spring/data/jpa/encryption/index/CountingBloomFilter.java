@@ -0,0 +1,107 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter made of 4-bit counters instead of bits, so that elements can be removed, packed 16 per word and
+ * updated with compare-and-set. The {@code hashCount} counters of an element are derived from two 64-bit hashes
+ * ({@code hash1 + i * hash2}), which does not weaken the false positive rate of the filter.
+ * <p>
+ * A counter reaching 15 is never decremented again, as its true count is lost: elements sharing it stay reported as
+ * possibly present, which is a false positive, never a false negative. Removing an element which was not added
+ * breaks this guarantee, callers must not do so.
+ */
+final class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long MAX_COUNT = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray words;
+    private final long counterCount;
+    private final int hashCount;
+
+    CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        double optimalCounterCount = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int wordCount = Math.toIntExact(Math.max(1, (long) Math.ceil(optimalCounterCount / COUNTERS_PER_WORD)));
+        this.words = new AtomicLongArray(wordCount);
+        this.counterCount = (long) wordCount * COUNTERS_PER_WORD;
+        this.hashCount = Math.max(1, (int) Math.round((double) counterCount / expectedInsertions * Math.log(2)));
+    }
+
+    void add(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            increment(counterIndex(hash1, hash2, i));
+        }
+    }
+
+    void remove(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            decrement(counterIndex(hash1, hash2, i));
+        }
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            if (count(counterIndex(hash1, hash2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getCounterCount() {
+        return counterCount;
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+
+    private long counterIndex(long hash1, long hash2, int i) {
+        return Math.floorMod(hash1 + i * hash2, counterCount);
+    }
+
+    private long count(long counterIndex) {
+        return (words.get(wordIndex(counterIndex)) >>> shift(counterIndex)) & MAX_COUNT;
+    }
+
+    private void increment(long counterIndex) {
+        int wordIndex = wordIndex(counterIndex);
+        int shift = shift(counterIndex);
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if (((word >>> shift) & MAX_COUNT) == MAX_COUNT) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word + (1L << shift)));
+    }
+
+    private void decrement(long counterIndex) {
+        int wordIndex = wordIndex(counterIndex);
+        int shift = shift(counterIndex);
+        long word;
+        do {
+            word = words.get(wordIndex);
+            long count = (word >>> shift) & MAX_COUNT;
+            if (count == 0 || count == MAX_COUNT) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word - (1L << shift)));
+    }
+
+    private static int wordIndex(long counterIndex) {
+        return (int) (counterIndex / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long counterIndex) {
+        return (int) (counterIndex % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+}
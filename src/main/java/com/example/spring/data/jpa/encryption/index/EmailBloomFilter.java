@@ -0,0 +1,218 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.persistence.AttributeConverter;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * In-memory counting Bloom filter of the emails of the {@code user} table, so that most existence checks of an email
+ * which is not taken are answered without querying the database. {@link #mightContain(String)} never returns
+ * {@code false} for a stored email: a {@code true} must be confirmed by the database.
+ * <p>
+ * Emails are hashed with HMAC-SHA256 under a random key drawn at startup, so that the filter holds no stable hash
+ * of any email. It is filled once, by a background scan of the table in id ranges of {@code partition-size} ids,
+ * decrypted in parallel, and kept up to date by the components writing users. Until the scan is done, every email
+ * might be present, and removals are ignored, as the scan may not have added the removed emails yet.
+ * <p>
+ * Only the emails readable with the default encryption key are scanned, so the filter is not used when a tenant is
+ * set. It only sees the writes of this instance, and must not be enabled when several instances write users.
+ */
+@Component
+@ConditionalOnProperty(name = "example.email-filter.enabled", havingValue = "true")
+public class EmailBloomFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    private static final String SELECT_ID_RANGE = "select min(id), max(id) from user";
+    private static final String SELECT_EMAILS_IN_RANGE = "select email from user where id >= ? and id < ?";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_KEY_LENGTH_BYTES = 32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttributeConverter<String, String> emailConverter;
+    private final CountingBloomFilter filter;
+    private final Mac macPrototype;
+    private final int partitionSize;
+    private final int fetchSize;
+    private final int parallelism;
+    private boolean built;
+    private volatile boolean ready;
+
+    public EmailBloomFilter(JdbcTemplate jdbcTemplate,
+                            CryptoConverterFactory cryptoConverterFactory,
+                            @Value("${example.email-filter.expected-emails:1000000}") long expectedEmails,
+                            @Value("${example.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${example.email-filter.partition-size:10000}") int partitionSize,
+                            @Value("${example.email-filter.fetch-size:1000}") int fetchSize,
+                            @Value("${example.email-filter.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emailConverter = cryptoConverterFactory.create(UserConverters.Email.class);
+        this.filter = new CountingBloomFilter(expectedEmails, falsePositiveRate);
+        this.macPrototype = initMac();
+        this.partitionSize = partitionSize;
+        this.fetchSize = fetchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread buildThread = new Thread(this::build, "email-filter-build");
+        buildThread.setDaemon(true);
+        buildThread.start();
+    }
+
+    /**
+     * Scans the emails of the table into the filter, once: later calls wait for the first one to be done.
+     */
+    public synchronized void build() {
+        if (built) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        long[] idRange = jdbcTemplate.queryForObject(SELECT_ID_RANGE, (resultSet, rowNum) -> resultSet.getObject(1) == null
+                ? null
+                : new long[]{resultSet.getLong(1), resultSet.getLong(2)});
+        long[] counts = new long[2];
+        if (idRange != null) {
+            ExecutorService scanExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "email-filter-scan");
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<long[]>> partitionCounts = new ArrayList<>();
+            try {
+                for (long firstId = idRange[0]; firstId <= idRange[1]; firstId += partitionSize) {
+                    long startId = firstId;
+                    partitionCounts.add(scanExecutor.submit(() -> scanPartition(startId, startId + partitionSize)));
+                }
+                for (Future<long[]> partitionCount : partitionCounts) {
+                    long[] partitionCountValues = partitionCount.get();
+                    counts[0] += partitionCountValues[0];
+                    counts[1] += partitionCountValues[1];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Email filter build was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot build email filter", e.getCause());
+            } finally {
+                scanExecutor.shutdownNow();
+            }
+        }
+        built = true;
+        ready = true;
+        LOGGER.info("Email filter built with {} emails in {} ms, {} emails not readable with the default key were skipped",
+                counts[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), counts[1]);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return {@code false} when no user has this email, {@code true} when one might have it
+     */
+    public boolean mightContain(String email) {
+        if (!ready || isEmpty(email) || TenantContext.getCurrentTenant() != null) {
+            return true;
+        }
+        ByteBuffer hash = hash(email);
+        return filter.mightContain(hash.getLong(0), hash.getLong(Long.BYTES));
+    }
+
+    /**
+     * Adds the email of a user about to be written. Adding it before the write is committed is safe: a rolled back
+     * write only leaves a false positive.
+     */
+    public void add(String email) {
+        if (!isEmpty(email)) {
+            ByteBuffer hash = hash(email);
+            filter.add(hash.getLong(0), hash.getLong(Long.BYTES));
+        }
+    }
+
+    /**
+     * Removes the email of a user, once its deletion or the change of its email is committed. The email must have
+     * been stored, removing any other breaks the filter.
+     */
+    public void remove(String email) {
+        if (ready && !isEmpty(email)) {
+            ByteBuffer hash = hash(email);
+            filter.remove(hash.getLong(0), hash.getLong(Long.BYTES));
+        }
+    }
+
+    private long[] scanPartition(long startId, long endId) {
+        long[] counts = new long[2];
+        DecryptionAuditTrail.runInScope("EmailBloomFilter.build", () -> jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EMAILS_IN_RANGE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            preparedStatement.setLong(1, startId);
+            preparedStatement.setLong(2, endId);
+            return preparedStatement;
+        }, resultSet -> {
+            String email;
+            try {
+                email = emailConverter.convertToEntityAttribute(resultSet.getString(1));
+            } catch (RuntimeException e) {
+                // Emails of tenants are encrypted with other keys, and are never looked up in the filter
+                counts[1]++;
+                return;
+            }
+            add(email);
+            counts[0]++;
+        }));
+        return counts;
+    }
+
+    private ByteBuffer hash(String email) {
+        try {
+            // Cloning an initialized Mac is much cheaper than looking it up and initializing it again
+            Mac mac = (Mac) macPrototype.clone();
+            return ByteBuffer.wrap(mac.doFinal(email.getBytes(UTF_8)));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mac initMac() {
+        byte[] key = new byte[MAC_KEY_LENGTH_BYTES];
+        new SecureRandom().nextBytes(key);
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
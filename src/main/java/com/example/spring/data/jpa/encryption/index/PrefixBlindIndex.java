@@ -0,0 +1,122 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Keyed hashes (HMAC-SHA256, truncated to 128 bits) of the normalized prefixes of a value, from 1 character up to
+ * {@code maxPrefixLength} characters. Storing these tokens next to an encrypted column allows prefix searches without
+ * decrypting the table. The index is disabled unless a blind index key is configured.
+ */
+@Component
+public class PrefixBlindIndex {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_LENGTH_BYTES = 16;
+
+    private final Mac macPrototype;
+    private final int maxPrefixLength;
+
+    public PrefixBlindIndex(@Value("${example.database.encryption.blind-index.key:}") String key,
+                            @Value("${example.database.encryption.blind-index.max-prefix-length:4}") int maxPrefixLength) {
+        this.macPrototype = isEmpty(key) ? null : initMac(key);
+        this.maxPrefixLength = maxPrefixLength;
+    }
+
+    public static PrefixBlindIndex disabled() {
+        return new PrefixBlindIndex(null, 0);
+    }
+
+    public boolean isEnabled() {
+        return macPrototype != null;
+    }
+
+    public int getMaxPrefixLength() {
+        return maxPrefixLength;
+    }
+
+    /**
+     * @return tokens of all prefixes of the value, or an empty set when the index is disabled or the value is empty
+     */
+    public Set<String> tokens(String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (!isEnabled() || isEmpty(value)) {
+            return tokens;
+        }
+        String normalizedValue = normalize(value);
+        Mac mac = newMac();
+        int length = normalizedValue.codePointCount(0, normalizedValue.length());
+        for (int prefixLength = 1; prefixLength <= Math.min(length, maxPrefixLength); prefixLength++) {
+            tokens.add(token(mac, normalizedValue.substring(0, normalizedValue.offsetByCodePoints(0, prefixLength))));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the token to look up for the given prefix; prefixes longer than {@code maxPrefixLength} are truncated,
+     * so matches must be refined after decryption
+     */
+    public String searchToken(String prefix) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Prefix blind index is not enabled, configure a blind index key");
+        }
+        String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            throw new IllegalArgumentException("Cannot search an empty prefix");
+        }
+        int length = normalizedPrefix.codePointCount(0, normalizedPrefix.length());
+        if (length > maxPrefixLength) {
+            normalizedPrefix = normalizedPrefix.substring(0, normalizedPrefix.offsetByCodePoints(0, maxPrefixLength));
+        }
+        return token(newMac(), normalizedPrefix);
+    }
+
+    /**
+     * Trims, removes diacritics and lower-cases the value, so that "  &Eacute;mile" and "emile" share their prefixes.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFKD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+
+    private Mac newMac() {
+        try {
+            // Cloning an initialized Mac is much cheaper than looking it up and initializing it again
+            return (Mac) macPrototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String token(Mac mac, String normalizedPrefix) {
+        byte[] hash = mac.doFinal(normalizedPrefix.getBytes(UTF_8));
+        return Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, TOKEN_LENGTH_BYTES));
+    }
+
+    private static Mac initMac(String key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key.getBytes(UTF_8), MAC_ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.spring.data.jpa.encryption.ingest;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec.EncryptedUserRow;
+import com.example.spring.data.jpa.encryption.export.ExportFormat;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.EmailBloomFilter;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.SYNC;
+
+/**
+ * Saves users asynchronously, so that callers only pay for enqueuing them. Users are taken from a bounded queue by
+ * worker threads, encrypted, and inserted in JDBC batches of at most {@code batch-size} users, waiting at most
+ * {@code max-latency-millis} for a batch to fill. When the queue is full, callers wait up to
+ * {@code offer-timeout-millis} before being rejected.
+ * <p>
+ * A failing batch is retried {@code max-attempts} times, then its users are inserted one by one, and the users which
+ * still fail are appended, encrypted, to the {@code dead-letter-file} so that they can be replayed. So are the users of
+ * a batch whose worker is interrupted or fails unexpectedly, whose futures are then completed exceptionally.
+ */
+@Component
+@ConditionalOnProperty(name = "example.write-behind.enabled", havingValue = "true")
+public class UserWriteBehindQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserWriteBehindQueue.class);
+
+    private static final String INSERT_USER = "insert into user (first_name, last_name, email, birth_date, creation_date, birth_date_bucket) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LAST_NAME_PREFIX_TOKEN = "insert into user_last_name_prefix (user_id, token) values (?, ?)";
+    private static final String[] DEAD_LETTER_COLUMN_NAMES = {"tenant", "firstName", "lastName", "email", "birthDate", "creationDate", "birthDateBucket", "lastNamePrefixTokens", "error"};
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRowCodec userRowCodec;
+    private final BlockingQueue<PendingUser> queue;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final Path deadLetterFile;
+    private final List<Thread> workers = new ArrayList<>();
+    // Held for reading while users are enqueued, and for writing to stop accepting them
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private EmailBloomFilter emailBloomFilter;
+    private volatile boolean running = true;
+
+    public UserWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                CryptoConverterFactory cryptoConverterFactory,
+                                PrefixBlindIndex prefixBlindIndex,
+                                ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex,
+                                @Value("${example.write-behind.capacity:10000}") int capacity,
+                                @Value("${example.write-behind.batch-size:500}") int batchSize,
+                                @Value("${example.write-behind.max-latency-millis:50}") long maxLatencyMillis,
+                                @Value("${example.write-behind.offer-timeout-millis:1000}") long offerTimeoutMillis,
+                                @Value("${example.write-behind.workers:1}") int workerCount,
+                                @Value("${example.write-behind.max-attempts:3}") int maxAttempts,
+                                @Value("${example.write-behind.dead-letter-file:write-behind-dead-letters.jsonl}") String deadLetterFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRowCodec = new UserRowCodec(cryptoConverterFactory, prefixBlindIndex, birthDateBucketIndex.getIfAvailable(BirthDateBucketIndex::disabled));
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.deadLetterFile = Paths.get(deadLetterFile);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drainQueue, "user-write-behind-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @Autowired(required = false)
+    public void setEmailBloomFilter(EmailBloomFilter emailBloomFilter) {
+        this.emailBloomFilter = emailBloomFilter;
+    }
+
+    /**
+     * Enqueues the user, waiting for room in the queue when it is full.
+     *
+     * @return the id of the user once it is inserted
+     * @throws RejectedExecutionException when the queue is still full after {@code offer-timeout-millis}, or is shut down
+     */
+    public CompletableFuture<Long> submit(User user) {
+        PendingUser pendingUser = new PendingUser(user, TenantContext.getCurrentTenant());
+        runningLock.readLock().lock();
+        try {
+            // Checked under the lock, so that no user is enqueued once the workers may have stopped
+            if (!running) {
+                throw new RejectedExecutionException("User write-behind queue is shut down");
+            }
+            if (!queue.offer(pendingUser, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("User write-behind queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in user write-behind queue", e);
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        if (emailBloomFilter != null) {
+            // Only added once queued, so that a rejected user leaves nothing in the filter
+            emailBloomFilter.add(user.getEmail());
+        }
+        return pendingUser.id;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting users, and waits for the users already enqueued to be written.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // Users left by workers which were interrupted
+        List<PendingUser> remainingUsers = new ArrayList<>();
+        queue.drainTo(remainingUsers);
+        for (PendingUser pendingUser : remainingUsers) {
+            pendingUser.id.completeExceptionally(new RejectedExecutionException("User write-behind queue was shut down before the user was written"));
+        }
+    }
+
+    private void drainQueue() {
+        List<PendingUser> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingUser first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < batchSize) {
+                    PendingUser next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Cannot write batch of {} users", batch.size(), e);
+                    abandon(batch, e);
+                } catch (Error e) {
+                    abandon(batch, e);
+                    throw e;
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Users taken from the queue, or waiting for a retry, would otherwise never be completed
+            abandon(batch, new RejectedExecutionException("User write-behind worker was interrupted before the user was written", e));
+        }
+    }
+
+    /**
+     * Completes exceptionally the users of the batch which are not completed yet, after writing the encrypted ones to
+     * the dead letter file.
+     */
+    private void abandon(List<PendingUser> batch, Throwable failure) {
+        for (PendingUser pendingUser : batch) {
+            if (pendingUser.id.isDone()) {
+                continue;
+            }
+            if (pendingUser.encryptedUserRow != null) {
+                writeDeadLetter(pendingUser, failure);
+            }
+            pendingUser.id.completeExceptionally(failure);
+        }
+    }
+
+    private void write(List<PendingUser> batch) throws InterruptedException {
+        List<PendingUser> encryptedBatch = new ArrayList<>(batch.size());
+        for (PendingUser pendingUser : batch) {
+            TenantContext.setCurrentTenant(pendingUser.tenantId);
+            try {
+                pendingUser.encryptedUserRow = userRowCodec.encode(pendingUser.user);
+                encryptedBatch.add(pendingUser);
+            } catch (RuntimeException e) {
+                pendingUser.id.completeExceptionally(e);
+            } finally {
+                TenantContext.clear();
+            }
+        }
+        if (encryptedBatch.isEmpty()) {
+            return;
+        }
+
+        RuntimeException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                complete(encryptedBatch, insert(encryptedBatch));
+                return;
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                if (attempt < maxAttempts) {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                }
+            }
+        }
+
+        LOGGER.warn("Batch of {} users failed {} times, inserting them one by one", encryptedBatch.size(), maxAttempts, lastFailure);
+        for (PendingUser pendingUser : encryptedBatch) {
+            List<PendingUser> singleUser = Collections.singletonList(pendingUser);
+            try {
+                complete(singleUser, insert(singleUser));
+            } catch (RuntimeException e) {
+                writeDeadLetter(pendingUser, e);
+                pendingUser.id.completeExceptionally(e);
+            }
+        }
+    }
+
+    private List<Long> insert(List<PendingUser> pendingUsers) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            List<Long> ids = new ArrayList<>(pendingUsers.size());
+            try (PreparedStatement insertUser = connection.prepareStatement(INSERT_USER, new String[]{"id"})) {
+                for (PendingUser pendingUser : pendingUsers) {
+                    EncryptedUserRow encryptedUserRow = pendingUser.encryptedUserRow;
+                    insertUser.setString(1, encryptedUserRow.getFirstName());
+                    insertUser.setString(2, encryptedUserRow.getLastName());
+                    insertUser.setString(3, encryptedUserRow.getEmail());
+                    insertUser.setString(4, encryptedUserRow.getBirthDate());
+                    insertUser.setString(5, encryptedUserRow.getCreationDate());
+                    insertUser.setString(6, encryptedUserRow.getBirthDateBucket());
+                    insertUser.addBatch();
+                }
+                insertUser.executeBatch();
+                try (ResultSet generatedKeys = insertUser.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        ids.add(generatedKeys.getLong(1));
+                    }
+                }
+            }
+            if (ids.size() != pendingUsers.size()) {
+                throw new SQLException("Expected " + pendingUsers.size() + " generated ids but got " + ids.size());
+            }
+            try (PreparedStatement insertToken = connection.prepareStatement(INSERT_LAST_NAME_PREFIX_TOKEN)) {
+                for (int i = 0; i < pendingUsers.size(); i++) {
+                    for (String token : pendingUsers.get(i).encryptedUserRow.getLastNamePrefixTokens()) {
+                        insertToken.setLong(1, ids.get(i));
+                        insertToken.setString(2, token);
+                        insertToken.addBatch();
+                    }
+                }
+                insertToken.executeBatch();
+            }
+            return ids;
+        }));
+    }
+
+    private static void complete(List<PendingUser> pendingUsers, List<Long> ids) {
+        for (int i = 0; i < pendingUsers.size(); i++) {
+            pendingUsers.get(i).user.setId(ids.get(i));
+            pendingUsers.get(i).id.complete(ids.get(i));
+        }
+    }
+
+    private synchronized void writeDeadLetter(PendingUser pendingUser, Throwable failure) {
+        EncryptedUserRow encryptedUserRow = pendingUser.encryptedUserRow;
+        StringBuilder line = new StringBuilder();
+        // Only encrypted values and index tokens are written, the file does not hold more plain data than the database.
+        // Index values are kept, so that replayed users can be searched without the index keys
+        ExportFormat.JSONL.appendRow(line, DEAD_LETTER_COLUMN_NAMES, new String[]{
+                pendingUser.tenantId,
+                encryptedUserRow.getFirstName(),
+                encryptedUserRow.getLastName(),
+                encryptedUserRow.getEmail(),
+                encryptedUserRow.getBirthDate(),
+                encryptedUserRow.getCreationDate(),
+                encryptedUserRow.getBirthDateBucket(),
+                // Base64 tokens never contain spaces
+                String.join(" ", encryptedUserRow.getLastNamePrefixTokens()),
+                String.valueOf(failure.getMessage())
+        });
+        try {
+            Path directory = deadLetterFile.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Files.write(deadLetterFile, line.toString().getBytes(UTF_8), CREATE, APPEND, SYNC);
+        } catch (IOException e) {
+            LOGGER.error("Cannot write user to dead letter file {}, it is lost", deadLetterFile, e);
+        }
+    }
+
+    private static final class PendingUser {
+
+        private final User user;
+        private final String tenantId;
+        private final CompletableFuture<Long> id = new CompletableFuture<>();
+        private EncryptedUserRow encryptedUserRow;
+
+        private PendingUser(User user, String tenantId) {
+            this.user = user;
+            this.tenantId = tenantId;
+        }
+    }
+}
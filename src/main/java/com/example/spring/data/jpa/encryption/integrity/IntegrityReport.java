@@ -0,0 +1,79 @@
+package com.example.spring.data.jpa.encryption.integrity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a {@link UserIntegrityScanner} scan: the number of scanned rows, and for each column which failed to
+ * decrypt, the number of bad rows and the ids of the first ones.
+ */
+public final class IntegrityReport {
+
+    private final int maxReportedIdsPerColumn;
+    private final Map<String, ColumnReport> columnReports = new LinkedHashMap<>();
+    private long scannedRows;
+
+    IntegrityReport(int maxReportedIdsPerColumn) {
+        this.maxReportedIdsPerColumn = maxReportedIdsPerColumn;
+    }
+
+    void recordScannedRow() {
+        scannedRows++;
+    }
+
+    void recordBadRow(String columnName, long id) {
+        ColumnReport columnReport = columnReports.computeIfAbsent(columnName, name -> new ColumnReport());
+        columnReport.badRows++;
+        if (columnReport.badRowIds.size() < maxReportedIdsPerColumn) {
+            columnReport.badRowIds.add(id);
+        }
+    }
+
+    void merge(IntegrityReport other) {
+        scannedRows += other.scannedRows;
+        other.columnReports.forEach((columnName, otherColumnReport) -> {
+            ColumnReport columnReport = columnReports.computeIfAbsent(columnName, name -> new ColumnReport());
+            columnReport.badRows += otherColumnReport.badRows;
+            for (Long id : otherColumnReport.badRowIds) {
+                if (columnReport.badRowIds.size() < maxReportedIdsPerColumn) {
+                    columnReport.badRowIds.add(id);
+                }
+            }
+        });
+    }
+
+    public long getScannedRows() {
+        return scannedRows;
+    }
+
+    public boolean isClean() {
+        return columnReports.isEmpty();
+    }
+
+    /**
+     * @return the reports of the columns with at least one bad row, by column name
+     */
+    public Map<String, ColumnReport> getColumnReports() {
+        return Collections.unmodifiableMap(columnReports);
+    }
+
+    public static final class ColumnReport {
+
+        private long badRows;
+        private final List<Long> badRowIds = new ArrayList<>();
+
+        public long getBadRows() {
+            return badRows;
+        }
+
+        /**
+         * @return the ids of the first bad rows found, in no particular order
+         */
+        public List<Long> getBadRowIds() {
+            return Collections.unmodifiableList(badRowIds);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.spring.data.jpa.encryption.integrity;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.AttributeConverter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that every encrypted value of the {@code user} table can be decrypted, without loading entities.
+ * The table is split in id ranges of {@code partition-size} ids, which are read and decrypted in parallel, at most
+ * twice as many partitions as scanning threads being submitted at a time.
+ * <p>
+ * A value is reported as bad when its converter fails, or when it decrypts to invalid UTF-8, which is what a wrong
+ * key gives in the rare cases where the padding is still valid. UTF-8 is checked whatever the default charset.
+ */
+@Component
+public class UserIntegrityScanner {
+
+    private static final String SELECT_ID_RANGE = "select min(id), max(id) from user";
+    private static final String SELECT_USERS_IN_RANGE = "select id, first_name, last_name, email, birth_date, creation_date from user where id >= ? and id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<EncryptedColumn> encryptedColumns = new ArrayList<>();
+    private final int partitionSize;
+    private final int fetchSize;
+    private final int maxReportedIdsPerColumn;
+    private final int maxPendingPartitions;
+    private final ExecutorService scanExecutor;
+
+    public UserIntegrityScanner(JdbcTemplate jdbcTemplate,
+                                CryptoConverterFactory cryptoConverterFactory,
+                                @Value("${example.integrity.partition-size:10000}") int partitionSize,
+                                @Value("${example.integrity.fetch-size:1000}") int fetchSize,
+                                @Value("${example.integrity.max-reported-ids-per-column:100}") int maxReportedIdsPerColumn,
+                                @Value("${example.integrity.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        encryptedColumns.add(new EncryptedColumn("first_name", cryptoConverterFactory.createStrict(UserConverters.FirstName.class)));
+        encryptedColumns.add(new EncryptedColumn("last_name", cryptoConverterFactory.createStrict(UserConverters.LastName.class)));
+        encryptedColumns.add(new EncryptedColumn("email", cryptoConverterFactory.createStrict(UserConverters.Email.class)));
+        encryptedColumns.add(new EncryptedColumn("birth_date", cryptoConverterFactory.createStrict(UserConverters.BirthDate.class)));
+        encryptedColumns.add(new EncryptedColumn("creation_date", cryptoConverterFactory.createStrict(UserConverters.CreationDate.class)));
+        this.partitionSize = partitionSize;
+        this.fetchSize = fetchSize;
+        this.maxReportedIdsPerColumn = maxReportedIdsPerColumn;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxPendingPartitions = 2 * threads;
+        this.scanExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-integrity-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public IntegrityReport scan() {
+        IntegrityReport report = new IntegrityReport(maxReportedIdsPerColumn);
+        long[] idRange = jdbcTemplate.queryForObject(SELECT_ID_RANGE, (resultSet, rowNum) -> resultSet.getObject(1) == null
+                ? null
+                : new long[]{resultSet.getLong(1), resultSet.getLong(2)});
+        if (idRange == null) {
+            return report;
+        }
+
+        String tenantId = TenantContext.getCurrentTenant();
+        String codePath = DecryptionAuditTrail.currentScopeOr("UserIntegrityScanner.scan");
+        Deque<Future<IntegrityReport>> partitionReports = new ArrayDeque<>();
+        try {
+            for (long firstId = idRange[0]; firstId <= idRange[1]; firstId += partitionSize) {
+                // Partitions are only submitted as earlier ones are done, so that pending ones do not grow with the table
+                if (partitionReports.size() >= maxPendingPartitions) {
+                    report.merge(partitionReports.removeFirst().get());
+                }
+                long startId = firstId;
+                partitionReports.addLast(scanExecutor.submit(() -> scanPartition(startId, startId + partitionSize, tenantId, codePath)));
+            }
+            while (!partitionReports.isEmpty()) {
+                report.merge(partitionReports.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            partitionReports.forEach(partitionReport -> partitionReport.cancel(true));
+            throw new IllegalStateException("User integrity scan was interrupted", e);
+        } catch (ExecutionException e) {
+            partitionReports.forEach(partitionReport -> partitionReport.cancel(true));
+            throw new IllegalStateException("Cannot scan users", e.getCause());
+        }
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanExecutor.shutdownNow();
+    }
+
+    private IntegrityReport scanPartition(long startId, long endId, String tenantId, String codePath) {
+        IntegrityReport partitionReport = new IntegrityReport(maxReportedIdsPerColumn);
+        TenantContext.setCurrentTenant(tenantId);
+        try {
+            DecryptionAuditTrail.runInScope(codePath, () -> jdbcTemplate.query(connection -> {
+                PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USERS_IN_RANGE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                preparedStatement.setFetchSize(fetchSize);
+                preparedStatement.setLong(1, startId);
+                preparedStatement.setLong(2, endId);
+                return preparedStatement;
+            }, resultSet -> {
+                long id = resultSet.getLong(1);
+                partitionReport.recordScannedRow();
+                for (int i = 0; i < encryptedColumns.size(); i++) {
+                    EncryptedColumn encryptedColumn = encryptedColumns.get(i);
+                    if (!encryptedColumn.isDecryptable(resultSet.getString(i + 2))) {
+                        partitionReport.recordBadRow(encryptedColumn.name, id);
+                    }
+                }
+            }));
+        } finally {
+            TenantContext.clear();
+        }
+        return partitionReport;
+    }
+
+    private static final class EncryptedColumn {
+
+        private final String name;
+        private final AttributeConverter<?, String> converter;
+
+        private EncryptedColumn(String name, AttributeConverter<?, String> converter) {
+            this.name = name;
+            this.converter = converter;
+        }
+
+        private boolean isDecryptable(String dbData) {
+            try {
+                // Converters are strict, and fail on invalid UTF-8
+                converter.convertToEntityAttribute(dbData);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+}
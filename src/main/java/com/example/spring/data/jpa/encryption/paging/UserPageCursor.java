@@ -0,0 +1,84 @@
+package com.example.spring.data.jpa.encryption.paging;
+
+import com.example.spring.data.jpa.encryption.domain.User;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Pages of users in id order, opened by {@link UserPager#open(Long, int)}. As soon as a page is read, the next one is
+ * prefetched, so that it is decrypted while the caller processes the current one. At most one page is prefetched,
+ * and no page is prefetched after a page shorter than the page size.
+ * <p>
+ * A cursor is used by a single thread.
+ */
+public final class UserPageCursor implements Iterator<List<User>>, AutoCloseable {
+
+    private final int pageSize;
+    private final Function<Long, Future<List<User>>> prefetcher;
+    private Future<List<User>> pendingPage;
+    private List<User> nextPage;
+    private Long lastId;
+
+    UserPageCursor(Long afterId, int pageSize, Function<Long, Future<List<User>>> prefetcher) {
+        this.pageSize = pageSize;
+        this.prefetcher = prefetcher;
+        this.lastId = afterId;
+        this.pendingPage = prefetcher.apply(afterId);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextPage == null && pendingPage != null) {
+            nextPage = await(pendingPage);
+            pendingPage = null;
+            if (nextPage.size() == pageSize) {
+                pendingPage = prefetcher.apply(nextPage.get(pageSize - 1).getId());
+            }
+        }
+        return nextPage != null && !nextPage.isEmpty();
+    }
+
+    @Override
+    public List<User> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<User> page = nextPage;
+        nextPage = null;
+        lastId = page.get(page.size() - 1).getId();
+        return page;
+    }
+
+    /**
+     * @return the id of the last user returned, from which a new cursor can resume, or the id the cursor was opened
+     * after when no page was returned yet
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    @Override
+    public void close() {
+        if (pendingPage != null) {
+            pendingPage.cancel(true);
+            pendingPage = null;
+        }
+        nextPage = null;
+    }
+
+    private static List<User> await(Future<List<User>> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User page prefetch was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot read users page", e.getCause());
+        }
+    }
+}
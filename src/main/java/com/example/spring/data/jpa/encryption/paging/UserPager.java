@@ -0,0 +1,113 @@
+package com.example.spring.data.jpa.encryption.paging;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec.EncryptedUserRow;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pages through users by id ({@code where id > :lastId order by id}) instead of by offset, so that reading a page
+ * costs the same wherever it is in the table, and users inserted or deleted meanwhile never shift the next pages.
+ * <p>
+ * A {@link UserPageCursor} reads and decrypts the next page on a prefetch thread while the caller processes the
+ * current one: a sequential walk of the table only waits for the crypto when the caller is faster than it. Each page
+ * is read in its own statement, outside of the transaction of the caller, and users are returned detached, without
+ * their last name prefix tokens.
+ */
+@Component
+public class UserPager {
+
+    private static final String SELECT_USERS_AFTER = "select id, first_name, last_name, email, birth_date, creation_date from user where id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRowCodec userRowCodec;
+    private final ExecutorService prefetchExecutor;
+
+    public UserPager(JdbcTemplate jdbcTemplate,
+                     CryptoConverterFactory cryptoConverterFactory,
+                     PrefixBlindIndex prefixBlindIndex,
+                     ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex,
+                     @Value("${example.paging.prefetch-threads:0}") int prefetchThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRowCodec = new UserRowCodec(cryptoConverterFactory, prefixBlindIndex, birthDateBucketIndex.getIfAvailable(BirthDateBucketIndex::disabled));
+        int threads = prefetchThreads > 0 ? prefetchThreads : Runtime.getRuntime().availableProcessors();
+        this.prefetchExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-paging");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads and decrypts, in the calling thread, at most {@code pageSize} users following the given id.
+     *
+     * @param afterId id of the last user of the previous page, or {@code null} for the first page
+     */
+    public List<User> findPageAfter(Long afterId, int pageSize) {
+        checkPageSize(pageSize);
+        List<EncryptedUserRow> rows = jdbcTemplate.query(SELECT_USERS_AFTER, (resultSet, rowNum) -> new EncryptedUserRow(
+                resultSet.getLong(1),
+                resultSet.getString(2),
+                resultSet.getString(3),
+                resultSet.getString(4),
+                resultSet.getString(5),
+                resultSet.getString(6)), afterId == null ? Long.MIN_VALUE : afterId, pageSize);
+
+        // Rows are only decrypted once read, so that the connection is not held during the crypto
+        List<User> users = new ArrayList<>(rows.size());
+        for (EncryptedUserRow row : rows) {
+            users.add(userRowCodec.decode(row));
+        }
+        return users;
+    }
+
+    /**
+     * Opens a cursor over the pages of at most {@code pageSize} users following the given id, the first one being
+     * already prefetched. The cursor must be closed once done, to cancel its pending prefetch.
+     *
+     * @param afterId id of the last user already processed, or {@code null} to start from the first user
+     */
+    public UserPageCursor open(Long afterId, int pageSize) {
+        checkPageSize(pageSize);
+        String tenantId = TenantContext.getCurrentTenant();
+        String codePath = DecryptionAuditTrail.currentScopeOr("UserPager.open");
+        return new UserPageCursor(afterId, pageSize, lastId -> prefetch(lastId, pageSize, tenantId, codePath));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    private Future<List<User>> prefetch(Long afterId, int pageSize, String tenantId, String codePath) {
+        return prefetchExecutor.submit(() -> {
+            TenantContext.setCurrentTenant(tenantId);
+            try {
+                return DecryptionAuditTrail.callInScope(codePath, () -> findPageAfter(afterId, pageSize));
+            } finally {
+                TenantContext.clear();
+            }
+        });
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.spring.data.jpa.encryption.query;
+
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+
+import javax.persistence.AttributeConverter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Encrypted column of the {@code user} table which {@link UserQuery} conditions can test, once decrypted with the
+ * converter of the matching {@link User} field.
+ */
+public final class UserField<T> {
+
+    public static final UserField<String> FIRST_NAME = new UserField<>(0, "first_name", UserConverters.FirstName.class, User::setFirstName);
+    public static final UserField<String> LAST_NAME = new UserField<>(1, "last_name", UserConverters.LastName.class, User::setLastName);
+    public static final UserField<String> EMAIL = new UserField<>(2, "email", UserConverters.Email.class, User::setEmail);
+    public static final UserField<LocalDate> BIRTH_DATE = new UserField<>(3, "birth_date", UserConverters.BirthDate.class, User::setBirthDate);
+    public static final UserField<LocalDateTime> CREATION_DATE = new UserField<>(4, "creation_date", UserConverters.CreationDate.class, User::setCreationDate);
+
+    static final List<UserField<?>> ALL = Collections.unmodifiableList(Arrays.asList(FIRST_NAME, LAST_NAME, EMAIL, BIRTH_DATE, CREATION_DATE));
+
+    private final int index;
+    private final String columnName;
+    private final Class<? extends AttributeConverter<T, String>> converterClass;
+    private final BiConsumer<User, T> setter;
+
+    private UserField(int index, String columnName, Class<? extends AttributeConverter<T, String>> converterClass, BiConsumer<User, T> setter) {
+        this.index = index;
+        this.columnName = columnName;
+        this.converterClass = converterClass;
+        this.setter = setter;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    String getColumnName() {
+        return columnName;
+    }
+
+    Class<? extends AttributeConverter<T, String>> getConverterClass() {
+        return converterClass;
+    }
+
+    void set(User user, T value) {
+        setter.accept(user, value);
+    }
+
+    @Override
+    public String toString() {
+        return columnName;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.spring.data.jpa.encryption.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Ad-hoc search on decrypted {@code User} fields, run by {@link UserQueryEngine}: conditions are combined with AND
+ * and tested in the order they were added, so the cheapest or most selective condition should come first.
+ * A condition never matches a {@code null} value. Instances are immutable.
+ */
+public final class UserQuery {
+
+    private final List<Condition<?>> conditions;
+    private final int limit;
+
+    private UserQuery(List<Condition<?>> conditions, int limit) {
+        this.conditions = conditions;
+        this.limit = limit;
+    }
+
+    public static <T> UserQuery where(UserField<T> field, Predicate<? super T> predicate) {
+        return new UserQuery(Collections.emptyList(), Integer.MAX_VALUE).and(field, predicate);
+    }
+
+    public <T> UserQuery and(UserField<T> field, Predicate<? super T> predicate) {
+        List<Condition<?>> newConditions = new ArrayList<>(conditions);
+        newConditions.add(new Condition<>(Objects.requireNonNull(field), Objects.requireNonNull(predicate)));
+        return new UserQuery(Collections.unmodifiableList(newConditions), limit);
+    }
+
+    /**
+     * @param limit maximum number of users to return, the search stops as soon as they are found
+     */
+    public UserQuery limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        return new UserQuery(conditions, limit);
+    }
+
+    List<Condition<?>> getConditions() {
+        return conditions;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    static final class Condition<T> {
+
+        private final UserField<T> field;
+        private final Predicate<? super T> predicate;
+
+        private Condition(UserField<T> field, Predicate<? super T> predicate) {
+            this.field = field;
+            this.predicate = predicate;
+        }
+
+        UserField<T> getField() {
+            return field;
+        }
+
+        boolean matches(T value) {
+            return value != null && predicate.test(value);
+        }
+    }
+}
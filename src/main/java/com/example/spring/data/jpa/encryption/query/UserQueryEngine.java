@@ -0,0 +1,235 @@
+package com.example.spring.data.jpa.encryption.query;
+
+import com.example.spring.data.jpa.encryption.audit.DecryptionAuditTrail;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.query.UserQuery.Condition;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.AttributeConverter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link UserQuery} searches on encrypted columns, which cannot be filtered by the database, without loading the
+ * whole table: rows are streamed from a forward-only JDBC cursor, grouped in chunks which are filtered in parallel,
+ * and the cursor is closed as soon as enough users are found. Each row only gets the columns tested by its conditions
+ * decrypted, stopping at the first condition it fails; the other columns are only decrypted for matching users.
+ * <p>
+ * Users are returned in id order, detached and without their last name prefix tokens. At most {@code max-results}
+ * users are returned, whatever the limit of the query, and at most {@code maxPendingChunks} chunks are in memory.
+ */
+@Component
+public class UserQueryEngine {
+
+    private static final String SELECT_USERS = UserField.ALL.stream()
+            .map(UserField::getColumnName)
+            .collect(Collectors.joining(", ", "select id, ", " from user order by id"));
+    private static final Object NOT_DECRYPTED = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    // Converter of each field, at the index of the field
+    private final List<AttributeConverter<?, String>> converters;
+    private final int fetchSize;
+    private final int chunkSize;
+    private final int maxResults;
+    private final int maxPendingChunks;
+    private final ExecutorService filterExecutor;
+
+    public UserQueryEngine(JdbcTemplate jdbcTemplate,
+                           CryptoConverterFactory cryptoConverterFactory,
+                           @Value("${example.query.fetch-size:1000}") int fetchSize,
+                           @Value("${example.query.chunk-size:500}") int chunkSize,
+                           @Value("${example.query.max-results:1000}") int maxResults,
+                           @Value("${example.query.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        List<AttributeConverter<?, String>> converters = new ArrayList<>(Collections.nCopies(UserField.ALL.size(), null));
+        for (UserField<?> field : UserField.ALL) {
+            converters.set(field.getIndex(), cryptoConverterFactory.create(field.getConverterClass()));
+        }
+        this.converters = Collections.unmodifiableList(converters);
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+        this.maxResults = maxResults;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxPendingChunks = 2 * threads;
+        this.filterExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<User> find(UserQuery query) {
+        Search search = new Search(query.getConditions(), Math.min(query.getLimit(), maxResults), TenantContext.getCurrentTenant(),
+                DecryptionAuditTrail.currentScopeOr("UserQueryEngine.find"));
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USERS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            return preparedStatement;
+        }, search::run);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        filterExecutor.shutdownNow();
+    }
+
+    private final class Search {
+
+        private final List<Condition<?>> conditions;
+        private final int limit;
+        private final String tenantId;
+        private final String codePath;
+        private final List<User> results = new ArrayList<>();
+        private final Deque<Future<List<User>>> pendingChunks = new ArrayDeque<>();
+
+        private Search(List<Condition<?>> conditions, int limit, String tenantId, String codePath) {
+            this.conditions = conditions;
+            this.limit = limit;
+            this.tenantId = tenantId;
+            this.codePath = codePath;
+        }
+
+        private List<User> run(ResultSet resultSet) throws SQLException {
+            try {
+                List<RawUserRow> chunk = new ArrayList<>(chunkSize);
+                while (results.size() < limit && resultSet.next()) {
+                    chunk.add(new RawUserRow(resultSet));
+                    if (chunk.size() == chunkSize) {
+                        submit(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty() && results.size() < limit) {
+                    submit(chunk);
+                }
+                while (!pendingChunks.isEmpty() && results.size() < limit) {
+                    collectOldestChunk();
+                }
+                return results;
+            } finally {
+                // Chunks read ahead of the limit are not needed anymore
+                pendingChunks.forEach(pendingChunk -> pendingChunk.cancel(true));
+                pendingChunks.clear();
+            }
+        }
+
+        private void submit(List<RawUserRow> chunk) {
+            pendingChunks.addLast(filterExecutor.submit(() -> filter(chunk)));
+            if (pendingChunks.size() >= maxPendingChunks) {
+                collectOldestChunk();
+            }
+        }
+
+        private void collectOldestChunk() {
+            try {
+                for (User user : pendingChunks.removeFirst().get()) {
+                    if (results.size() == limit) {
+                        return;
+                    }
+                    results.add(user);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("User query was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot filter users", e.getCause());
+            }
+        }
+
+        private List<User> filter(List<RawUserRow> chunk) {
+            TenantContext.setCurrentTenant(tenantId);
+            try {
+                return DecryptionAuditTrail.callInScope(codePath, () -> {
+                    List<User> matches = new ArrayList<>();
+                    for (int i = 0; i < chunk.size() && matches.size() < limit; i++) {
+                        DecryptedUserRow row = new DecryptedUserRow(chunk.get(i));
+                        if (row.matches(conditions)) {
+                            matches.add(row.toUser());
+                        }
+                    }
+                    return matches;
+                });
+            } finally {
+                TenantContext.clear();
+            }
+        }
+    }
+
+    private final class DecryptedUserRow {
+
+        private final RawUserRow rawUserRow;
+        private final Object[] values = new Object[UserField.ALL.size()];
+
+        private DecryptedUserRow(RawUserRow rawUserRow) {
+            this.rawUserRow = rawUserRow;
+            Arrays.fill(values, NOT_DECRYPTED);
+        }
+
+        private boolean matches(List<Condition<?>> conditions) {
+            for (Condition<?> condition : conditions) {
+                if (!matches(condition)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private <T> boolean matches(Condition<T> condition) {
+            return condition.matches(get(condition.getField()));
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T get(UserField<T> field) {
+            int index = field.getIndex();
+            if (values[index] == NOT_DECRYPTED) {
+                values[index] = converters.get(index).convertToEntityAttribute(rawUserRow.encryptedValues[index]);
+            }
+            // Safe, as the value at the index of a field was decrypted by the converter of this field
+            return (T) values[index];
+        }
+
+        private User toUser() {
+            User user = new User();
+            user.setId(rawUserRow.id);
+            for (UserField<?> field : UserField.ALL) {
+                set(user, field);
+            }
+            return user;
+        }
+
+        private <T> void set(User user, UserField<T> field) {
+            field.set(user, get(field));
+        }
+    }
+
+    private static final class RawUserRow {
+
+        private final long id;
+        private final String[] encryptedValues = new String[UserField.ALL.size()];
+
+        private RawUserRow(ResultSet resultSet) throws SQLException {
+            this.id = resultSet.getLong(1);
+            for (UserField<?> field : UserField.ALL) {
+                encryptedValues[field.getIndex()] = resultSet.getString(field.getIndex() + 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.spring.data.jpa.encryption.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.h2.H2ConnectionOption;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * R2DBC connections to the in-memory H2 database holding the {@code user} table created by Hibernate.
+ */
+@Configuration
+public class ReactiveUserConfiguration {
+
+    @Bean
+    public ConnectionFactory userConnectionFactory(@Value("${example.reactive.database:test}") String database,
+                                                   @Value("${spring.datasource.username:sa}") String username,
+                                                   @Value("${spring.datasource.password:}") String password) {
+        return new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .inMemory(database)
+                .property(H2ConnectionOption.DB_CLOSE_DELAY, "-1")
+                .username(username)
+                .password(password)
+                .build());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.spring.data.jpa.encryption.reactive;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec;
+import com.example.spring.data.jpa.encryption.domain.UserRowCodec.EncryptedUserRow;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.EmailBloomFilter;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of the {@code UserRepository}, reading and writing the same tables through R2DBC.
+ * Encryption and decryption are CPU-bound, so they are moved off the connection threads to a bounded parallel
+ * scheduler. The embedded H2 driver runs statements in the subscribing thread, so statements are subscribed on the
+ * bounded elastic scheduler rather than on the caller or crypto threads.
+ * The tenant of the caller is captured when a method is called, and used to encrypt and decrypt its users.
+ */
+@Component
+public class ReactiveUserRepository {
+
+    private static final String SELECT_USERS = "select id, first_name, last_name, email, birth_date, creation_date from user";
+    private static final String INSERT_USER = "insert into user (first_name, last_name, email, birth_date, creation_date, birth_date_bucket) values ($1, $2, $3, $4, $5, $6)";
+    private static final String UPDATE_USER = "update user set first_name = $1, last_name = $2, email = $3, birth_date = $4, creation_date = $5, birth_date_bucket = $6 where id = $7";
+    private static final String DELETE_LAST_NAME_PREFIX_TOKENS = "delete from user_last_name_prefix where user_id = $1";
+    private static final String INSERT_LAST_NAME_PREFIX_TOKEN = "insert into user_last_name_prefix (user_id, token) values ($1, $2)";
+
+    private final ConnectionFactory connectionFactory;
+    private final UserRowCodec userRowCodec;
+    private final Scheduler cryptoScheduler;
+    private EmailBloomFilter emailBloomFilter;
+
+    public ReactiveUserRepository(ConnectionFactory userConnectionFactory,
+                                  CryptoConverterFactory cryptoConverterFactory,
+                                  PrefixBlindIndex prefixBlindIndex,
+                                  ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex,
+                                  @Value("${example.reactive.crypto-parallelism:0}") int cryptoParallelism) {
+        this.connectionFactory = userConnectionFactory;
+        this.userRowCodec = new UserRowCodec(cryptoConverterFactory, prefixBlindIndex, birthDateBucketIndex.getIfAvailable(BirthDateBucketIndex::disabled));
+        int threads = cryptoParallelism > 0 ? cryptoParallelism : Runtime.getRuntime().availableProcessors();
+        this.cryptoScheduler = Schedulers.newParallel("user-crypto", threads, true);
+    }
+
+    @Autowired(required = false)
+    public void setEmailBloomFilter(EmailBloomFilter emailBloomFilter) {
+        this.emailBloomFilter = emailBloomFilter;
+    }
+
+    public Mono<User> findById(long id) {
+        return find(SELECT_USERS + " where id = $1", statement -> statement.bind(0, id)).next();
+    }
+
+    public Flux<User> findAll() {
+        return find(SELECT_USERS + " order by id", statement -> {
+        });
+    }
+
+    /**
+     * Inserts the user when it has no id yet, updates it otherwise, along with its last name prefix tokens.
+     */
+    public Mono<User> save(User user) {
+        String tenantId = TenantContext.getCurrentTenant();
+        if (emailBloomFilter != null) {
+            // Added before the write; the replaced email of an updated user is left in the filter, as a false positive
+            emailBloomFilter.add(user.getEmail());
+        }
+        return Mono.fromCallable(() -> withTenant(tenantId, () -> userRowCodec.encode(user)))
+                .subscribeOn(cryptoScheduler)
+                .flatMap(encryptedUserRow -> Mono.usingWhen(connectionFactory.create(),
+                        connection -> write(connection, encryptedUserRow),
+                        Connection::close)
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .map(id -> {
+                    user.setId(id);
+                    return user;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cryptoScheduler.dispose();
+    }
+
+    private Flux<User> find(String sql, Consumer<Statement> binder) {
+        String tenantId = TenantContext.getCurrentTenant();
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    binder.accept(statement);
+                    return Flux.from(statement.execute())
+                            .flatMap(result -> result.map((row, rowMetadata) -> readEncryptedUserRow(row)));
+                },
+                Connection::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(cryptoScheduler)
+                .map(encryptedUserRow -> withTenant(tenantId, () -> userRowCodec.decode(encryptedUserRow)));
+    }
+
+    private Mono<Long> write(Connection connection, EncryptedUserRow encryptedUserRow) {
+        Mono<Long> writeUser = encryptedUserRow.getId() == null
+                ? insertUser(connection, encryptedUserRow)
+                : updateUser(connection, encryptedUserRow).thenReturn(encryptedUserRow.getId());
+        return Mono.from(connection.beginTransaction())
+                .then(writeUser)
+                .flatMap(id -> replaceLastNamePrefixTokens(connection, id, encryptedUserRow).thenReturn(id))
+                .flatMap(id -> Mono.from(connection.commitTransaction()).thenReturn(id))
+                .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e)));
+    }
+
+    private Mono<Long> insertUser(Connection connection, EncryptedUserRow encryptedUserRow) {
+        Statement statement = bindColumns(connection.createStatement(INSERT_USER), encryptedUserRow)
+                .returnGeneratedValues("id");
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, rowMetadata) -> row.get(0, Long.class)))
+                .single();
+    }
+
+    private Mono<Void> updateUser(Connection connection, EncryptedUserRow encryptedUserRow) {
+        Statement statement = bindColumns(connection.createStatement(UPDATE_USER), encryptedUserRow)
+                .bind(6, encryptedUserRow.getId());
+        return execute(statement);
+    }
+
+    private Mono<Void> replaceLastNamePrefixTokens(Connection connection, long id, EncryptedUserRow encryptedUserRow) {
+        Mono<Void> deleteTokens = execute(connection.createStatement(DELETE_LAST_NAME_PREFIX_TOKENS).bind(0, id));
+        Iterator<String> tokens = encryptedUserRow.getLastNamePrefixTokens().iterator();
+        if (!tokens.hasNext()) {
+            return deleteTokens;
+        }
+        Statement insertTokens = connection.createStatement(INSERT_LAST_NAME_PREFIX_TOKEN).bind(0, id).bind(1, tokens.next());
+        while (tokens.hasNext()) {
+            insertTokens.add().bind(0, id).bind(1, tokens.next());
+        }
+        return deleteTokens.then(execute(insertTokens));
+    }
+
+    /**
+     * Only reads the row, which is not valid anymore once the mapping function of the result returns.
+     */
+    private static EncryptedUserRow readEncryptedUserRow(Row row) {
+        return new EncryptedUserRow(
+                row.get("id", Long.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("email", String.class),
+                row.get("birth_date", String.class),
+                row.get("creation_date", String.class));
+    }
+
+    private static Statement bindColumns(Statement statement, EncryptedUserRow encryptedUserRow) {
+        bindNullable(statement, 0, encryptedUserRow.getFirstName());
+        bindNullable(statement, 1, encryptedUserRow.getLastName());
+        bindNullable(statement, 2, encryptedUserRow.getEmail());
+        bindNullable(statement, 3, encryptedUserRow.getBirthDate());
+        bindNullable(statement, 4, encryptedUserRow.getCreationDate());
+        bindNullable(statement, 5, encryptedUserRow.getBirthDateBucket());
+        return statement;
+    }
+
+    private static void bindNullable(Statement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index, String.class);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static Mono<Void> execute(Statement statement) {
+        return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated).then();
+    }
+
+    private static <T> T withTenant(String tenantId, Supplier<T> supplier) {
+        TenantContext.setCurrentTenant(tenantId);
+        try {
+            return supplier.get();
+        } finally {
+            TenantContext.clear();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.spring.data.jpa.encryption.startup;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables lazy bean initialization when {@code example.startup.lazy-initialization} is {@code true}, as done by the
+ * {@code fast-startup} profile.
+ */
+@Configuration
+@ConditionalOnProperty(name = "example.startup.lazy-initialization", havingValue = "true")
+public class FastStartupConfiguration {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+        return new LazyInitializationBeanFactoryPostProcessor();
+    }
+}
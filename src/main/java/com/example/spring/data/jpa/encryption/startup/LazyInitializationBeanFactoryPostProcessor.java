@@ -0,0 +1,45 @@
+package com.example.spring.data.jpa.encryption.startup;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.Ordered;
+import org.springframework.core.type.MethodMetadata;
+
+/**
+ * Makes singleton beans lazy, so that beans which are not needed by the first requests, such as the exporter, the
+ * integrity scanner or the query engine with their thread pools, are only created when first used.
+ * <p>
+ * Infrastructure beans stay eager, as well as beans annotated with {@link Lazy @Lazy(false)}, which must run without
+ * being asked for, such as the key publication of {@code KeyProperty} or scheduled tasks.
+ */
+public class LazyInitializationBeanFactoryPostProcessor implements BeanFactoryPostProcessor, Ordered {
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.getRole() != BeanDefinition.ROLE_INFRASTRUCTURE && !hasLazyAnnotation(beanDefinition)) {
+                beanDefinition.setLazyInit(true);
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private static boolean hasLazyAnnotation(BeanDefinition beanDefinition) {
+        if (!(beanDefinition instanceof AnnotatedBeanDefinition)) {
+            return false;
+        }
+        AnnotatedBeanDefinition annotatedBeanDefinition = (AnnotatedBeanDefinition) beanDefinition;
+        MethodMetadata factoryMethodMetadata = annotatedBeanDefinition.getFactoryMethodMetadata();
+        return factoryMethodMetadata != null
+                ? factoryMethodMetadata.isAnnotated(Lazy.class.getName())
+                : annotatedBeanDefinition.getMetadata().hasAnnotation(Lazy.class.getName());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.spring.data.jpa.encryption.startup;
+
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reports the cold start time of the application, from the start of the JVM to the first successful
+ * {@link UserRepository} call, which is what an autoscaled instance needs before serving traffic. Enabled with
+ * {@code example.startup.report.enabled}, which the fast-startup profile sets, as the call queries the database.
+ * <p>
+ * With {@code example.startup.exit-on-ready}, the application exits right after this call, for startup training
+ * runs and benchmarks.
+ */
+@Component
+@ConditionalOnProperty(name = "example.startup.report.enabled", havingValue = "true")
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupReporter.class);
+
+    private final UserRepository userRepository;
+    private final boolean exitOnReady;
+
+    public StartupReporter(UserRepository userRepository,
+                           @Value("${example.startup.exit-on-ready:false}") boolean exitOnReady) {
+        this.userRepository = userRepository;
+        this.exitOnReady = exitOnReady;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        userRepository.count();
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        LOGGER.info("First UserRepository call succeeded {} ms after JVM start", uptimeMillis);
+        if (exitOnReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.spring.data.jpa.encryption.tenant;
+
+/**
+ * Holds the identifier of the tenant whose data is handled by the current thread.
+ * When no tenant is set, the default encryption key is used.
+ */
+public final class TenantContext {
+
+    private static final ThreadLocal<String> CURRENT_TENANT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String getCurrentTenant() {
+        return CURRENT_TENANT.get();
+    }
+
+    public static void setCurrentTenant(String tenantId) {
+        CURRENT_TENANT.set(tenantId);
+    }
+
+    public static void clear() {
+        CURRENT_TENANT.remove();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.spring.data.jpa.encryption.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditRingBufferTest {
+
+    @Test
+    void drain_should_return_offered_records_in_order() {
+        // Given
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(4);
+        ringBuffer.offer("export", null, "User.email", 1L);
+        ringBuffer.offer("query", "tenant1", "User.birthDate", 2L);
+        List<String> records = new ArrayList<>();
+
+        // When
+        int drained = ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> records.add(codePath + "/" + tenantId + "/" + fieldName + "/" + timeMillis));
+
+        // Then
+        assertThat(drained).isEqualTo(2);
+        assertThat(records).containsExactly("export/null/User.email/1", "query/tenant1/User.birthDate/2");
+    }
+
+    @Test
+    void offer_should_drop_records_when_ring_is_full() {
+        // Given
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(2);
+        ringBuffer.offer("export", null, "User.email", 1L);
+        ringBuffer.offer("export", null, "User.email", 2L);
+
+        // When
+        boolean offered = ringBuffer.offer("export", null, "User.email", 3L);
+
+        // Then
+        assertThat(offered).isFalse();
+        assertThat(ringBuffer.getDroppedCount()).isEqualTo(1);
+        assertThat(ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> {
+        })).isEqualTo(2);
+    }
+
+    @Test
+    void offer_should_reuse_slots_once_drained() {
+        // Given
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(2);
+        List<Long> times = new ArrayList<>();
+        for (long time = 0; time < 10; time++) {
+            // When
+            ringBuffer.offer("export", null, "User.email", time);
+            ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> times.add(timeMillis));
+        }
+
+        // Then
+        assertThat(times).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(ringBuffer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void drain_should_receive_every_record_offered_concurrently_or_count_it_as_dropped() throws Exception {
+        // Given
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(64);
+        int threads = 4;
+        int recordsPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        long[] drained = new long[1];
+
+        // When
+        try {
+            for (int i = 0; i < threads; i++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        ringBuffer.offer("export", null, "User.email", j);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (!writers.stream().allMatch(Future::isDone)) {
+                drained[0] += ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> assertThat(fieldName).isEqualTo("User.email"));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            drained[0] += ringBuffer.drain((codePath, tenantId, fieldName, timeMillis) -> assertThat(fieldName).isEqualTo("User.email"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(drained[0] + ringBuffer.getDroppedCount()).isEqualTo((long) threads * recordsPerThread);
+    }
+
+    @Test
+    void should_reject_capacity_which_is_not_a_power_of_two() {
+        assertThatThrownBy(() -> new AuditRingBuffer(3)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
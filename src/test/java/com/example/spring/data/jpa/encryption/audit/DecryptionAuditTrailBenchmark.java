@@ -0,0 +1,134 @@
+package com.example.spring.data.jpa.encryption.audit;
+
+import com.example.spring.data.jpa.encryption.converters.CipherInitializer;
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.StringCryptoConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of {@link DecryptionAuditTrail#recordDecryption(String)} on the calling thread, in a scope and
+ * with caller capture, from one thread and from one thread per processor, then compares converter decryptions with
+ * and without the audit trail. The ring is drained every 10 ms, as it would be in production.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class DecryptionAuditTrailBenchmark {
+
+    private static final Path AUDIT_FILE = Paths.get("build/decryption-audit-benchmark.jsonl");
+    private static final int RECORDS = 2_000_000;
+    private static final int DECRYPTIONS = 200_000;
+    private static final int ROUNDS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final List<DecryptionAuditTrail> decryptionAuditTrails = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DecryptionAuditTrail decryptionAuditTrail : decryptionAuditTrails) {
+            decryptionAuditTrail.shutdown();
+        }
+        Files.deleteIfExists(AUDIT_FILE);
+    }
+
+    @Test
+    void measure_record_cost() throws Exception {
+        DecryptionAuditTrail scopedAuditTrail = newDecryptionAuditTrail(false);
+        DecryptionAuditTrail capturingAuditTrail = newDecryptionAuditTrail(true);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, only the last one is representative
+            System.out.println("Round " + round + "/" + ROUNDS);
+            measure("scoped, 1 thread", scopedAuditTrail, 1, RECORDS, true);
+            measure("scoped, " + threads + " threads", scopedAuditTrail, threads, RECORDS / threads, true);
+            measure("caller capture, 1 thread", capturingAuditTrail, 1, RECORDS / 20, false);
+        }
+    }
+
+    @Test
+    void compare_decryptions_with_and_without_audit() throws Exception {
+        CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+        StringCryptoConverter converter = new StringCryptoConverter(cryptoContextHolder);
+        StringCryptoConverter auditedConverter = new StringCryptoConverter(cryptoContextHolder);
+        auditedConverter.setDecryptionAuditTrail(newDecryptionAuditTrail(false));
+        String dbData = converter.convertToDatabaseColumn("plain first name");
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Round " + round + "/" + ROUNDS);
+            for (StringCryptoConverter measuredConverter : new StringCryptoConverter[]{converter, auditedConverter}) {
+                long startNanos = System.nanoTime();
+                DecryptionAuditTrail.runInScope("benchmark", () -> {
+                    for (int i = 0; i < DECRYPTIONS; i++) {
+                        assertThat(measuredConverter.convertToEntityAttribute(dbData)).isNotNull();
+                    }
+                });
+                System.out.printf("  %-32s %10d ns per decryption%n", measuredConverter == converter ? "without audit" : "with audit",
+                        (System.nanoTime() - startNanos) / DECRYPTIONS);
+            }
+        }
+    }
+
+    private DecryptionAuditTrail newDecryptionAuditTrail(boolean captureCallers) {
+        DecryptionAuditTrail decryptionAuditTrail = new DecryptionAuditTrail(65_536, 10, AUDIT_FILE.toString(), captureCallers, "com.example");
+        decryptionAuditTrails.add(decryptionAuditTrail);
+        return decryptionAuditTrail;
+    }
+
+    private static void measure(String name, DecryptionAuditTrail decryptionAuditTrail, int threads, int recordsPerThread, boolean scoped) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        long droppedCountBefore = decryptionAuditTrail.getDroppedCount();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long threadId = Thread.currentThread().getId();
+                    long allocatedBytesBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+                    long startNanos = System.nanoTime();
+                    Runnable records = () -> {
+                        for (int j = 0; j < recordsPerThread; j++) {
+                            decryptionAuditTrail.recordDecryption("User.email");
+                        }
+                    };
+                    if (scoped) {
+                        DecryptionAuditTrail.runInScope("benchmark", records);
+                    } else {
+                        records.run();
+                    }
+                    return new long[]{System.nanoTime() - startNanos, THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBytesBefore};
+                }));
+            }
+            start.countDown();
+            long nanos = 0;
+            long allocatedBytes = 0;
+            for (Future<long[]> result : results) {
+                nanos = Math.max(nanos, result.get()[0]);
+                allocatedBytes += result.get()[1];
+            }
+            // Dropping a record is cheaper than recording it: a high drop rate means the drainer cannot keep up
+            long records = (long) threads * recordsPerThread;
+            System.out.printf("  %-32s %10d ns per record, %d bytes allocated per record, %d%% dropped%n", name,
+                    nanos / recordsPerThread, allocatedBytes / records, 100 * (decryptionAuditTrail.getDroppedCount() - droppedCountBefore) / records);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
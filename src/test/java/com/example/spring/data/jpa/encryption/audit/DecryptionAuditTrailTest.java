@@ -0,0 +1,170 @@
+package com.example.spring.data.jpa.encryption.audit;
+
+import com.example.spring.data.jpa.encryption.converters.CipherInitializer;
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.StringCryptoConverter;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecryptionAuditTrailTest {
+
+    private static final Path AUDIT_FILE = Paths.get("build/decryption-audit-test.jsonl");
+
+    private DecryptionAuditTrail decryptionAuditTrail;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.deleteIfExists(AUDIT_FILE);
+        // Flushed by the tests only
+        decryptionAuditTrail = newDecryptionAuditTrail(4, false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        decryptionAuditTrail.shutdown();
+        TenantContext.clear();
+    }
+
+    @Test
+    void flush_should_append_one_count_per_code_path_tenant_and_field() throws Exception {
+        // Given
+        DecryptionAuditTrail.runInScope("user-export", () -> {
+            decryptionAuditTrail.recordDecryption("User.email");
+            decryptionAuditTrail.recordDecryption("User.email");
+            TenantContext.setCurrentTenant("tenant1");
+            decryptionAuditTrail.recordDecryption("User.email");
+        });
+
+        // When
+        decryptionAuditTrail.flush();
+
+        // Then
+        List<String> lines = auditLines();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"codePath\":\"user-export\"", "\"tenant\":null", "\"field\":\"User.email\"", "\"count\":\"2\"");
+        assertThat(lines.get(1)).contains("\"codePath\":\"user-export\"", "\"tenant\":\"tenant1\"", "\"field\":\"User.email\"", "\"count\":\"1\"");
+    }
+
+    @Test
+    void flush_should_only_append_decryptions_recorded_since_previous_flush() throws Exception {
+        // Given
+        decryptionAuditTrail.recordDecryption("User.email");
+        decryptionAuditTrail.flush();
+        decryptionAuditTrail.recordDecryption("User.birthDate");
+
+        // When
+        decryptionAuditTrail.flush();
+        decryptionAuditTrail.flush();
+
+        // Then
+        List<String> lines = auditLines();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(1)).contains("\"codePath\":\"unscoped\"", "\"field\":\"User.birthDate\"", "\"count\":\"1\"");
+    }
+
+    @Test
+    void scope_should_restore_enclosing_scope_when_closed() throws Exception {
+        // Given
+        DecryptionAuditTrail.Scope outerScope = DecryptionAuditTrail.scope("monthly-report");
+        DecryptionAuditTrail.Scope innerScope = DecryptionAuditTrail.scope("user-export");
+        decryptionAuditTrail.recordDecryption("User.email");
+
+        // When
+        innerScope.close();
+        decryptionAuditTrail.recordDecryption("User.firstName");
+        outerScope.close();
+
+        // Then
+        decryptionAuditTrail.flush();
+        assertThat(auditLines()).hasSize(2)
+                .anySatisfy(line -> assertThat(line).contains("\"codePath\":\"user-export\"", "\"field\":\"User.email\""))
+                .anySatisfy(line -> assertThat(line).contains("\"codePath\":\"monthly-report\"", "\"field\":\"User.firstName\""));
+        assertThat(DecryptionAuditTrail.currentScopeOr("default")).isEqualTo("default");
+    }
+
+    @Test
+    void flush_should_append_count_of_decryptions_dropped_when_ring_was_full() throws Exception {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            decryptionAuditTrail.recordDecryption("User.email");
+        }
+
+        // When
+        decryptionAuditTrail.flush();
+
+        // Then
+        assertThat(decryptionAuditTrail.getDroppedCount()).isEqualTo(2);
+        assertThat(auditLines()).hasSize(2)
+                .anySatisfy(line -> assertThat(line).contains("\"field\":\"User.email\"", "\"count\":\"4\""))
+                .anySatisfy(line -> assertThat(line).contains("\"codePath\":null", "\"field\":\"dropped\"", "\"count\":\"2\""));
+    }
+
+    @Test
+    void recordDecryption_should_use_calling_method_as_code_path_when_capturing_callers() throws Exception {
+        // Given
+        decryptionAuditTrail.shutdown();
+        decryptionAuditTrail = newDecryptionAuditTrail(4, true);
+
+        // When
+        decryptionAuditTrail.recordDecryption("User.email");
+
+        // Then
+        decryptionAuditTrail.flush();
+        List<String> lines = auditLines();
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).contains("\"codePath\":\"" + DecryptionAuditTrailTest.class.getName() + ".recordDecryption_should_use_calling_method_as_code_path_when_capturing_callers\"");
+    }
+
+    @Test
+    void converters_should_record_decryptions_of_their_field() throws Exception {
+        // Given
+        CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+        StringCryptoConverter converter = new StringCryptoConverter(cryptoContextHolder);
+        String dbData = converter.convertToDatabaseColumn("plain first name");
+        converter.setDecryptionAuditTrail(decryptionAuditTrail);
+
+        // When
+        DecryptionAuditTrail.runInScope("user-export", () -> {
+            converter.convertToEntityAttribute(dbData);
+            converter.convertToDatabaseColumn("plain first name");
+        });
+
+        // Then
+        decryptionAuditTrail.flush();
+        List<String> lines = auditLines();
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0)).contains("\"codePath\":\"user-export\"", "\"field\":\"StringCryptoConverter\"", "\"count\":\"1\"");
+    }
+
+    @Test
+    void shutdown_should_flush_remaining_decryptions() throws Exception {
+        // Given
+        decryptionAuditTrail.recordDecryption("User.email");
+
+        // When
+        decryptionAuditTrail.shutdown();
+
+        // Then
+        assertThat(auditLines()).hasSize(1);
+    }
+
+    private static DecryptionAuditTrail newDecryptionAuditTrail(int capacity, boolean captureCallers) {
+        return new DecryptionAuditTrail(capacity, 3_600_000, AUDIT_FILE.toString(), captureCallers, "com.example");
+    }
+
+    private static List<String> auditLines() throws Exception {
+        return Files.exists(AUDIT_FILE) ? Files.readAllLines(AUDIT_FILE, UTF_8) : Collections.emptyList();
+    }
+}
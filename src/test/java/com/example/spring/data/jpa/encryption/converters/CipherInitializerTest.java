@@ -79,4 +79,51 @@ class CipherInitializerTest {
             assertThat(ivParameterSpec.getIV()).hasSize(CIPHER_BLOCK_SIZE);
         }
     }
+
+    @Nested
+    class CreateCryptoContextShould {
+
+        @Test
+        void return_disabled_context_when_key_is_null() throws Exception {
+            // When
+            CryptoContext cryptoContext = spiedCipherInitializer.createCryptoContext(null);
+
+            // Then
+            assertThat(cryptoContext.isEncryptionEnabled()).isFalse();
+        }
+
+        @Test
+        void return_disabled_context_when_key_is_empty() throws Exception {
+            // When
+            CryptoContext cryptoContext = spiedCipherInitializer.createCryptoContext("");
+
+            // Then
+            assertThat(cryptoContext.isEncryptionEnabled()).isFalse();
+        }
+
+        @Test
+        void derive_key_and_algorithm_parameters_once() throws Exception {
+            // When
+            CryptoContext cryptoContext = spiedCipherInitializer.createCryptoContext(key);
+
+            // Then
+            assertThat(cryptoContext.isEncryptionEnabled()).isTrue();
+            assertThat(cryptoContext.getCipherInstanceName()).isEqualTo("AES/CBC/PKCS5Padding");
+            assertThat(cryptoContext.getSecretKey().getAlgorithm()).isEqualTo("AES");
+            assertThat(new String(cryptoContext.getSecretKey().getEncoded())).isEqualTo(key);
+            assertThat(((IvParameterSpec) cryptoContext.getAlgorithmParameters()).getIV()).hasSize(CIPHER_BLOCK_SIZE);
+        }
+
+        @Test
+        void prepare_cipher_from_context_without_deriving_key_again() throws Exception {
+            // Given
+            CryptoContext cryptoContext = spiedCipherInitializer.createCryptoContext(key);
+
+            // When
+            spiedCipherInitializer.prepareAndInitCipher(encryptionMode, cryptoContext);
+
+            // Then
+            verify(spiedCipherInitializer).callCipherInit(any(Cipher.class), eq(encryptionMode), same(cryptoContext.getSecretKey()), same(cryptoContext.getAlgorithmParameters()));
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the round-trip throughput of {@link StringCryptoConverter} with and without {@link CipherPool}, and the
+ * number of ciphers each creates, with one thread per processor and with many more threads than processors, as
+ * thread-per-request handling does. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class CipherPoolBenchmark {
+
+    private static final int TOTAL_ROUND_TRIPS = 400_000;
+    private static final int OVERSUBSCRIPTION = 64;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void compare_pooled_and_unpooled_ciphers() throws Exception {
+        CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, only the last one is representative
+            System.out.println("Round " + round + "/" + ROUNDS);
+            for (int threads : new int[]{processors, OVERSUBSCRIPTION * processors}) {
+                CipherPool unpooled = new CipherPool(0);
+                CipherPool pooled = new CipherPool(CipherPool.DEFAULT_CAPACITY);
+                double unpooledRoundTripsPerMilli = measureRoundTripsPerMilli(threads, new StringCryptoConverter(new CipherInitializer(unpooled), cryptoContextHolder));
+                double pooledRoundTripsPerMilli = measureRoundTripsPerMilli(threads, new StringCryptoConverter(new CipherInitializer(pooled), cryptoContextHolder));
+                System.out.printf("  %4d threads  unpooled: %7.1f round trips/ms (%7d ciphers), pooled: %7.1f round trips/ms (%3d ciphers)%n",
+                        threads, unpooledRoundTripsPerMilli, unpooled.createdCount(), pooledRoundTripsPerMilli, pooled.createdCount());
+            }
+        }
+    }
+
+    private static double measureRoundTripsPerMilli(int threads, StringCryptoConverter converter) throws Exception {
+        int roundTripsPerThread = TOTAL_ROUND_TRIPS / threads;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    String attribute = null;
+                    for (int i = 0; i < roundTripsPerThread; i++) {
+                        attribute = converter.convertToEntityAttribute(converter.convertToDatabaseColumn("plain first name"));
+                    }
+                    return attribute;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertThat(future.get()).isEqualTo("plain first name");
+            }
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return (double) threads * roundTripsPerThread / elapsedMillis;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CipherPoolTest {
+
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    @Test
+    void borrow_should_return_released_cipher() throws Exception {
+        // Given
+        CipherPool cipherPool = new CipherPool(2);
+        Cipher cipher = cipherPool.borrow(TRANSFORMATION);
+
+        // When
+        cipherPool.release(cipher);
+        Cipher result = cipherPool.borrow(TRANSFORMATION);
+
+        // Then
+        assertThat(result).isSameAs(cipher);
+        assertThat(cipherPool.createdCount()).isEqualTo(1);
+    }
+
+    @Test
+    void borrow_should_create_cipher_when_none_is_idle() throws Exception {
+        // Given
+        CipherPool cipherPool = new CipherPool(2);
+        Cipher borrowedCipher = cipherPool.borrow(TRANSFORMATION);
+
+        // When
+        Cipher result = cipherPool.borrow(TRANSFORMATION);
+
+        // Then
+        assertThat(result).isNotSameAs(borrowedCipher);
+        assertThat(result.getAlgorithm()).isEqualTo(TRANSFORMATION);
+        assertThat(cipherPool.createdCount()).isEqualTo(2);
+    }
+
+    @Test
+    void borrow_should_not_return_cipher_of_another_transformation() throws Exception {
+        // Given
+        CipherPool cipherPool = new CipherPool(2);
+        cipherPool.release(cipherPool.borrow("AES/GCM/NoPadding"));
+
+        // When
+        Cipher result = cipherPool.borrow(TRANSFORMATION);
+
+        // Then
+        assertThat(result.getAlgorithm()).isEqualTo(TRANSFORMATION);
+        assertThat(cipherPool.idleCount("AES/GCM/NoPadding")).isEqualTo(1);
+    }
+
+    @Test
+    void release_should_drop_ciphers_beyond_capacity() throws Exception {
+        // Given
+        CipherPool cipherPool = new CipherPool(2);
+        List<Cipher> ciphers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ciphers.add(cipherPool.borrow(TRANSFORMATION));
+        }
+
+        // When
+        ciphers.forEach(cipherPool::release);
+
+        // Then
+        assertThat(cipherPool.idleCount(TRANSFORMATION)).isEqualTo(2);
+    }
+
+    @Test
+    void pool_without_capacity_should_always_create_ciphers() throws Exception {
+        // Given
+        CipherPool cipherPool = new CipherPool(0);
+        Cipher cipher = cipherPool.borrow(TRANSFORMATION);
+
+        // When
+        cipherPool.release(cipher);
+        Cipher result = cipherPool.borrow(TRANSFORMATION);
+
+        // Then
+        assertThat(result).isNotSameAs(cipher);
+        assertThat(cipherPool.idleCount(TRANSFORMATION)).isZero();
+    }
+
+    @Test
+    void constructor_should_reject_negative_capacity() {
+        assertThatThrownBy(() -> new CipherPool(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Runs two nodes, each one with its own application context, sharing one in-memory H2 database.
+ */
+class ClusterKeyRegistryTest {
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private String databaseUrl;
+
+    private AnnotationConfigApplicationContext firstNode;
+
+    private AnnotationConfigApplicationContext secondNode;
+
+    @BeforeEach
+    void setUp() {
+        databaseUrl = "jdbc:h2:mem:cluster-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        firstNode = startNode("MySuperSecretKey");
+        secondNode = startNode("MyOtherSecretKey");
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstNode.close();
+        secondNode.close();
+        new JdbcTemplate(new DriverManagerDataSource(databaseUrl, "sa", "")).execute("drop all objects");
+    }
+
+    @Test
+    void nodes_should_use_the_key_of_the_first_started_node() {
+        // Then
+        assertThat(firstNode.getBean(ClusterKeyRegistry.class).getCurrentVersion()).isEqualTo(1);
+        assertThat(secondNode.getBean(ClusterKeyRegistry.class).getCurrentVersion()).isEqualTo(1);
+        assertThat(encrypt(secondNode, "plain value")).isEqualTo(encrypt(firstNode, "plain value"));
+    }
+
+    @Test
+    void rotate_key_should_switch_all_nodes_to_the_new_key_within_a_poll_interval() throws Exception {
+        // Given
+        String encryptedWithFirstKey = encrypt(firstNode, "plain value");
+
+        // When
+        firstNode.getBean(ClusterKeyRegistry.class).rotateKey("MyRotatedKey1234");
+
+        // Then
+        assertThat(firstNode.getBean(ClusterKeyRegistry.class).getCurrentVersion()).isEqualTo(2);
+        awaitVersion(secondNode, 2);
+        assertThat(encrypt(firstNode, "plain value")).isNotEqualTo(encryptedWithFirstKey);
+        assertThat(encrypt(secondNode, "plain value")).isEqualTo(encrypt(firstNode, "plain value"));
+    }
+
+    @Test
+    void start_should_fail_without_master_key() {
+        // When
+        Throwable throwable = catchThrowable(() -> startNode("MySuperSecretKey", ""));
+
+        // Then
+        assertThat(throwable).hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private AnnotationConfigApplicationContext startNode(String configuredKey) {
+        return startNode(configuredKey, "MyMasterKey12345");
+    }
+
+    private AnnotationConfigApplicationContext startNode(String configuredKey, String masterKey) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("example.database.encryption.key", configuredKey);
+        properties.put("example.database.encryption.cluster.enabled", "true");
+        properties.put("example.database.encryption.cluster.master-key", masterKey);
+        properties.put("example.database.encryption.cluster.poll-interval-millis", String.valueOf(POLL_INTERVAL_MILLIS));
+        properties.put("test.database.url", databaseUrl);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("node", properties));
+        context.register(NodeConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    private static String encrypt(AnnotationConfigApplicationContext node, String value) {
+        return new StringCryptoConverter(node.getBean(CryptoContextHolder.class)).convertToDatabaseColumn(value);
+    }
+
+    private static void awaitVersion(AnnotationConfigApplicationContext node, long version) throws InterruptedException {
+        ClusterKeyRegistry clusterKeyRegistry = node.getBean(ClusterKeyRegistry.class);
+        long deadline = System.currentTimeMillis() + 20 * POLL_INTERVAL_MILLIS;
+        while (clusterKeyRegistry.getCurrentVersion() != version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(clusterKeyRegistry.getCurrentVersion()).isEqualTo(version);
+    }
+
+    @Configuration
+    @EnableScheduling
+    @Import({CryptoContextHolder.class, KeyProperty.class, ClusterKeyRegistry.class})
+    static class NodeConfiguration {
+
+        @Bean
+        JdbcTemplate jdbcTemplate(Environment environment) {
+            return new JdbcTemplate(new DriverManagerDataSource(environment.getProperty("test.database.url"), "sa", ""));
+        }
+    }
+}
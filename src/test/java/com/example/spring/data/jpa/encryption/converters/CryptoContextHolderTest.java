@@ -0,0 +1,77 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class CryptoContextHolderTest {
+
+    private CryptoContextHolder cryptoContextHolder;
+
+    @BeforeEach
+    void setUp() {
+        cryptoContextHolder = new CryptoContextHolder();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void get_should_return_disabled_context_when_no_context_was_published() {
+        // When
+        CryptoContext cryptoContext = cryptoContextHolder.get();
+
+        // Then
+        assertThat(cryptoContext.isEncryptionEnabled()).isFalse();
+    }
+
+    @Test
+    void get_should_return_last_published_context() throws Exception {
+        // Given
+        CryptoContext firstCryptoContext = new CipherInitializer().createCryptoContext("MySuperSecretKey");
+        CryptoContext secondCryptoContext = new CipherInitializer().createCryptoContext("MyOtherSecretKey");
+        cryptoContextHolder.set(firstCryptoContext);
+
+        // When
+        cryptoContextHolder.set(secondCryptoContext);
+
+        // Then
+        assertThat(cryptoContextHolder.get()).isSameAs(secondCryptoContext);
+    }
+
+    @Test
+    void get_should_return_context_of_current_tenant_when_a_tenant_is_set() throws Exception {
+        // Given
+        CryptoContext defaultCryptoContext = new CipherInitializer().createCryptoContext("MySuperSecretKey");
+        CryptoContext tenantCryptoContext = new CipherInitializer().createCryptoContext("AcmeSuperSecret!");
+        cryptoContextHolder.set(defaultCryptoContext);
+        cryptoContextHolder.setTenantCryptoContextCache(new TenantCryptoContextCache(tenantId -> tenantCryptoContext, 10, Duration.ofMinutes(30), System::nanoTime));
+        TenantContext.setCurrentTenant("acme");
+
+        // When
+        CryptoContext cryptoContext = cryptoContextHolder.get();
+
+        // Then
+        assertThat(cryptoContext).isSameAs(tenantCryptoContext);
+    }
+
+    @Test
+    void get_should_fail_when_a_tenant_is_set_but_tenant_keys_are_not_configured() {
+        // Given
+        TenantContext.setCurrentTenant("acme");
+
+        // When
+        Throwable throwable = catchThrowable(() -> cryptoContextHolder.get());
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("acme");
+    }
+}
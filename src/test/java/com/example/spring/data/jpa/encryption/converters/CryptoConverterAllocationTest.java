@@ -0,0 +1,157 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes allocated by a single conversion call, using the per-thread allocation counter of the JVM,
+ * and fails when a converter exceeds the budget configured in {@code allocation-budgets.properties}.
+ */
+class CryptoConverterAllocationTest {
+
+    private static final String BUDGETS_RESOURCE = "/allocation-budgets.properties";
+    private static final int WARM_UP_ITERATIONS = 20_000;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int MEASURED_ITERATIONS = 2_000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Properties budgets;
+
+    private CryptoContextHolder cryptoContextHolder;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        try (InputStream inputStream = CryptoConverterAllocationTest.class.getResourceAsStream(BUDGETS_RESOURCE)) {
+            budgets.load(inputStream);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(), "Thread allocated memory measurement is not supported");
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+        cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+    }
+
+    @Nested
+    class StringCryptoConverterShould {
+
+        private StringCryptoConverter converter;
+
+        @BeforeEach
+        void setUp() {
+            converter = new StringCryptoConverter(cryptoContextHolder);
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_database_column() {
+            assertWithinBudget("StringCryptoConverter.convertToDatabaseColumn", () -> converter.convertToDatabaseColumn("plain first name"));
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_entity_attribute() {
+            String dbData = converter.convertToDatabaseColumn("plain first name");
+
+            assertWithinBudget("StringCryptoConverter.convertToEntityAttribute", () -> converter.convertToEntityAttribute(dbData));
+        }
+    }
+
+    @Nested
+    class LocalDateCryptoConverterShould {
+
+        private LocalDateCryptoConverter converter;
+
+        @BeforeEach
+        void setUp() {
+            converter = new LocalDateCryptoConverter(cryptoContextHolder);
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_database_column() {
+            LocalDate attribute = LocalDate.of(1988, 3, 28);
+
+            assertWithinBudget("LocalDateCryptoConverter.convertToDatabaseColumn", () -> converter.convertToDatabaseColumn(attribute));
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_entity_attribute() {
+            String dbData = converter.convertToDatabaseColumn(LocalDate.of(1988, 3, 28));
+
+            assertWithinBudget("LocalDateCryptoConverter.convertToEntityAttribute", () -> converter.convertToEntityAttribute(dbData));
+        }
+    }
+
+    @Nested
+    class LocalDateTimeCryptoConverterShould {
+
+        private LocalDateTimeCryptoConverter converter;
+
+        @BeforeEach
+        void setUp() {
+            converter = new LocalDateTimeCryptoConverter(cryptoContextHolder);
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_database_column() {
+            LocalDateTime attribute = LocalDateTime.of(2017, 7, 10, 9, 58, 17);
+
+            assertWithinBudget("LocalDateTimeCryptoConverter.convertToDatabaseColumn", () -> converter.convertToDatabaseColumn(attribute));
+        }
+
+        @Test
+        void stay_within_allocation_budget_when_converting_to_entity_attribute() {
+            String dbData = converter.convertToDatabaseColumn(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+
+            assertWithinBudget("LocalDateTimeCryptoConverter.convertToEntityAttribute", () -> converter.convertToEntityAttribute(dbData));
+        }
+    }
+
+    private static void assertWithinBudget(String budgetName, Supplier<?> conversion) {
+        long budget = Long.parseLong(budgets.getProperty(budgetName));
+
+        long allocatedBytesPerCall = measureAllocatedBytesPerCall(conversion);
+
+        assertThat(allocatedBytesPerCall)
+                .as("bytes allocated per call by %s (budget: %d bytes)", budgetName, budget)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    private static long measureAllocatedBytesPerCall(Supplier<?> conversion) {
+        Object sink = null;
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            sink = conversion.get();
+        }
+
+        // The lowest round is kept, so that a concurrent JIT compilation does not make the measurement flaky
+        long threadId = Thread.currentThread().getId();
+        long minAllocatedBytesPerCall = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long allocatedBytesBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                sink = conversion.get();
+            }
+            long allocatedBytesAfter = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            minAllocatedBytesPerCall = Math.min(minAllocatedBytesPerCall, (allocatedBytesAfter - allocatedBytesBefore) / MEASURED_ITERATIONS);
+        }
+
+        assertThat(sink).isNotNull();
+        return minAllocatedBytesPerCall;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoEventTest {
+
+    private StringCryptoConverter converter;
+
+    private Recording recording;
+
+    private Path recordingFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+        converter = new StringCryptoConverter(cryptoContextHolder);
+        recording = new Recording();
+        recordingFile = Files.createTempFile("crypto-events", ".jfr");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        recording.close();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    void converters_should_commit_encrypt_decrypt_and_cipher_init_events_reaching_threshold() throws Exception {
+        // Given
+        enableEvents(Duration.ZERO);
+        recording.start();
+
+        // When
+        String dbData = converter.convertToDatabaseColumn("plain first name");
+        converter.convertToEntityAttribute(dbData);
+
+        // Then
+        List<RecordedEvent> events = stopAndReadEvents();
+        RecordedEvent encryptEvent = single(events, EncryptEvent.NAME);
+        assertThat(encryptEvent.getClass("converterClass").getName()).isEqualTo(StringCryptoConverter.class.getName());
+        assertThat(encryptEvent.getString("fieldName")).isEqualTo("StringCryptoConverter");
+        assertThat(encryptEvent.getInt("plaintextSize")).isEqualTo(16);
+        assertThat(encryptEvent.getInt("ciphertextSize")).isEqualTo(32);
+        assertThat(encryptEvent.getDuration()).isGreaterThan(Duration.ZERO);
+        RecordedEvent decryptEvent = single(events, DecryptEvent.NAME);
+        assertThat(decryptEvent.getInt("plaintextSize")).isEqualTo(16);
+        assertThat(decryptEvent.getInt("ciphertextSize")).isEqualTo(32);
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals(CipherInitEvent.NAME))
+                .extracting(event -> event.getBoolean("encryption"))
+                .containsExactly(true, false);
+    }
+
+    @Test
+    void converters_should_not_commit_events_below_threshold() throws Exception {
+        // Given
+        enableEvents(Duration.ofHours(1));
+        recording.start();
+
+        // When
+        converter.convertToEntityAttribute(converter.convertToDatabaseColumn("plain first name"));
+
+        // Then
+        assertThat(stopAndReadEvents()).isEmpty();
+    }
+
+    @Test
+    void encryption_settings_should_enable_all_crypto_events() throws Exception {
+        // When
+        Configuration configuration;
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/jfr/encryption.jfc"), UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+
+        // Then
+        for (String eventName : new String[]{CipherInitEvent.NAME, EncryptEvent.NAME, DecryptEvent.NAME}) {
+            assertThat(configuration.getSettings())
+                    .containsEntry(eventName + "#enabled", "true")
+                    .containsKey(eventName + "#threshold");
+        }
+    }
+
+    private void enableEvents(Duration threshold) {
+        recording.enable(CipherInitEvent.NAME).withThreshold(threshold);
+        recording.enable(EncryptEvent.NAME).withThreshold(threshold);
+        recording.enable(DecryptEvent.NAME).withThreshold(threshold);
+    }
+
+    private List<RecordedEvent> stopAndReadEvents() throws Exception {
+        recording.stop();
+        recording.dump(recordingFile);
+        // Recordings are JVM wide, only the events of this thread are about this test
+        long threadId = Thread.currentThread().getId();
+        return RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.example.spring.data.jpa.encryption."))
+                .filter(event -> event.getThread() != null && event.getThread().getJavaThreadId() == threadId)
+                .collect(Collectors.toList());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String eventName) {
+        List<RecordedEvent> matchingEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .collect(Collectors.toList());
+        assertThat(matchingEvents).hasSize(1);
+        return matchingEvents.get(0);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoOperationMonitorTest {
+
+    private CryptoOperationMonitor cryptoOperationMonitor;
+
+    @BeforeEach
+    void setUp() {
+        cryptoOperationMonitor = new CryptoOperationMonitor(3, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(cryptoOperationMonitor);
+    }
+
+    @Nested
+    class RecordShould {
+
+        @Test
+        void ignore_operations_outside_of_transaction() {
+            // When
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+
+            // Then
+            assertThat(cryptoOperationMonitor.currentTransactionStatistics().getDecryptions()).isZero();
+        }
+
+        @Test
+        void account_operations_of_current_transaction_by_field() {
+            // Given
+            TransactionSynchronizationManager.initSynchronization();
+
+            // When
+            cryptoOperationMonitor.recordEncryption("User.firstName", 1_000);
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+            cryptoOperationMonitor.recordDecryption("User.lastName", 1_000);
+
+            // Then
+            CryptoOperationStatistics statistics = cryptoOperationMonitor.currentTransactionStatistics();
+            assertThat(statistics.getEncryptions()).isEqualTo(1);
+            assertThat(statistics.getDecryptions()).isEqualTo(2);
+            assertThat(statistics.getDecryptions("User.lastName")).isEqualTo(1);
+            assertThat(statistics.getElapsedNanos()).isEqualTo(3_000);
+        }
+
+        @Test
+        void reset_statistics_after_transaction_completion() {
+            // Given
+            TransactionSynchronizationManager.initSynchronization();
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+
+            // When
+            completeTransaction();
+
+            // Then
+            TransactionSynchronizationManager.initSynchronization();
+            assertThat(cryptoOperationMonitor.currentTransactionStatistics().getDecryptions()).isZero();
+        }
+
+        @Test
+        void keep_statistics_of_suspended_transaction_apart() {
+            // Given
+            TransactionSynchronizationManager.initSynchronization();
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+
+            // When
+            List<TransactionSynchronization> suspendedSynchronizations = TransactionSynchronizationManager.getSynchronizations();
+            suspendedSynchronizations.forEach(TransactionSynchronization::suspend);
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+            cryptoOperationMonitor.recordDecryption("User.firstName", 1_000);
+            completeTransaction();
+            TransactionSynchronizationManager.initSynchronization();
+            suspendedSynchronizations.forEach(TransactionSynchronization::resume);
+
+            // Then
+            assertThat(cryptoOperationMonitor.currentTransactionStatistics().getDecryptions()).isEqualTo(1);
+        }
+
+        @Test
+        void account_operations_of_converters_created_by_factory() throws Exception {
+            // Given
+            CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+            CryptoConverterFactory cryptoConverterFactory = new CryptoConverterFactory(cryptoContextHolder, new EncryptionPolicies(Collections.emptyList()));
+            cryptoConverterFactory.setCryptoOperationMonitor(cryptoOperationMonitor);
+            StringCryptoConverter converter = cryptoConverterFactory.create(StringCryptoConverter.class);
+            TransactionSynchronizationManager.initSynchronization();
+
+            // When
+            converter.convertToEntityAttribute(converter.convertToDatabaseColumn("plain value"));
+
+            // Then
+            CryptoOperationStatistics statistics = cryptoOperationMonitor.currentTransactionStatistics();
+            assertThat(statistics.getEncryptions()).isEqualTo(1);
+            assertThat(statistics.getDecryptions()).isEqualTo(1);
+        }
+
+        @Test
+        void account_operations_served_from_converter_caches() throws Exception {
+            // Given
+            CryptoContextHolder cryptoContextHolder = new CryptoContextHolder();
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+            CryptoConverterFactory cryptoConverterFactory = new CryptoConverterFactory(cryptoContextHolder,
+                    new EncryptionPolicies(Collections.singletonList(EncryptionPoliciesTest.PolicyEntity.class)));
+            cryptoConverterFactory.setCryptoOperationMonitor(cryptoOperationMonitor);
+            StringCryptoConverter cachedConverter = cryptoConverterFactory.create(EncryptionPoliciesTest.CachedConverter.class);
+            String dbData = cachedConverter.convertToDatabaseColumn("plain value");
+            cachedConverter.convertToEntityAttribute(dbData);
+            TransactionSynchronizationManager.initSynchronization();
+
+            // When
+            cachedConverter.convertToDatabaseColumn("plain value");
+            cachedConverter.convertToEntityAttribute(dbData);
+
+            // Then
+            CryptoOperationStatistics statistics = cryptoOperationMonitor.currentTransactionStatistics();
+            assertThat(statistics.getEncryptions()).isEqualTo(1);
+            assertThat(statistics.getDecryptions()).isEqualTo(1);
+            assertThat(statistics.getElapsedNanos()).isZero();
+        }
+    }
+
+    @Nested
+    class ExceedsThresholdsShould {
+
+        @Test
+        void be_false_below_thresholds() {
+            // Given
+            CryptoOperationStatistics statistics = new CryptoOperationStatistics("findAll");
+            statistics.recordDecryption("User.firstName", 1_000);
+
+            // When
+            boolean result = cryptoOperationMonitor.exceedsThresholds(statistics);
+
+            // Then
+            assertThat(result).isFalse();
+        }
+
+        @Test
+        void be_true_when_decryptions_reach_threshold() {
+            // Given
+            CryptoOperationStatistics statistics = new CryptoOperationStatistics("findAll");
+            for (int i = 0; i < 3; i++) {
+                statistics.recordDecryption("User.firstName", 1_000);
+            }
+
+            // When
+            boolean result = cryptoOperationMonitor.exceedsThresholds(statistics);
+
+            // Then
+            assertThat(result).isTrue();
+        }
+
+        @Test
+        void be_true_when_duration_reaches_threshold() {
+            // Given
+            CryptoOperationStatistics statistics = new CryptoOperationStatistics("findAll");
+            statistics.recordEncryption("User.firstName", TimeUnit.MILLISECONDS.toNanos(100));
+
+            // When
+            boolean result = cryptoOperationMonitor.exceedsThresholds(statistics);
+
+            // Then
+            assertThat(result).isTrue();
+        }
+    }
+
+    private static void completeTransaction() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
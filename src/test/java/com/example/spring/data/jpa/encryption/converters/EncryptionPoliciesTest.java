@@ -0,0 +1,481 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Algorithm;
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Encoding;
+import com.example.spring.data.jpa.encryption.converters.Encrypted.Mode;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Convert;
+import java.security.Key;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EncryptionPoliciesTest {
+
+    private static final String LONG_VALUE = "a rather long and repetitive value, a rather long and repetitive value, a rather long and repetitive value";
+
+    private CryptoContextHolder cryptoContextHolder;
+
+    private EncryptionPolicies encryptionPolicies;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MySuperSecretKey"));
+        encryptionPolicies = new EncryptionPolicies(Collections.singletonList(PolicyEntity.class));
+    }
+
+    @Nested
+    class CompileShould {
+
+        @Test
+        void use_the_default_plan_for_converters_without_policy() {
+            // When
+            FieldCodecPlan fieldCodecPlan = encryptionPolicies.planFor(StringCryptoConverter.class);
+
+            // Then
+            assertThat(fieldCodecPlan).isSameAs(FieldCodecPlan.DEFAULT);
+        }
+
+        @Test
+        void name_plans_after_their_entity_field() {
+            // When
+            FieldCodecPlan fieldCodecPlan = encryptionPolicies.planFor(RandomizedConverter.class);
+
+            // Then
+            assertThat(fieldCodecPlan.getFieldName()).isEqualTo("PolicyEntity.randomized");
+            assertThat(fieldCodecPlan.isRandomized()).isTrue();
+        }
+
+        @Test
+        void reject_encrypted_field_without_crypto_converter() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EncryptionPolicies(Collections.singletonList(NotConvertedEntity.class)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("NotConvertedEntity.value");
+        }
+
+        @Test
+        void reject_gcm_in_deterministic_mode() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EncryptionPolicies(Collections.singletonList(DeterministicGcmEntity.class)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("AES_GCM");
+        }
+
+        @Test
+        void reject_cache_in_randomized_mode() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EncryptionPolicies(Collections.singletonList(RandomizedCachedEntity.class)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("randomized mode");
+        }
+
+        @Test
+        void reject_canonicalization_of_non_string_field() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EncryptionPolicies(Collections.singletonList(CanonicalizedDateEntity.class)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("only String values");
+        }
+
+        @Test
+        void reject_converter_shared_by_two_encrypted_fields() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EncryptionPolicies(Collections.singletonList(SharedConverterEntity.class)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class).hasMessageContaining("share converter");
+        }
+    }
+
+    @Nested
+    class ConvertersShould {
+
+        @Test
+        void keep_default_ciphertexts_for_default_policy() {
+            // Given
+            StringCryptoConverter defaultConverter = converter(new DefaultConverter());
+            StringCryptoConverter converterWithoutPolicy = new StringCryptoConverter(cryptoContextHolder);
+
+            // When
+            String result = defaultConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(result).isEqualTo(converterWithoutPolicy.convertToDatabaseColumn("plain value"));
+        }
+
+        @Test
+        void produce_distinct_ciphertexts_in_randomized_mode() {
+            // Given
+            StringCryptoConverter randomizedConverter = converter(new RandomizedConverter());
+
+            // When
+            String firstResult = randomizedConverter.convertToDatabaseColumn("plain value");
+            String secondResult = randomizedConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(firstResult).isNotEqualTo(secondResult);
+            assertThat(randomizedConverter.convertToEntityAttribute(firstResult)).isEqualTo("plain value");
+            assertThat(randomizedConverter.convertToEntityAttribute(secondResult)).isEqualTo("plain value");
+        }
+
+        @Test
+        void round_trip_with_gcm() {
+            // Given
+            StringCryptoConverter gcmConverter = converter(new GcmConverter());
+
+            // When
+            String result = gcmConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(gcmConverter.convertToEntityAttribute(result)).isEqualTo("plain value");
+        }
+
+        @Test
+        void reject_tampered_gcm_ciphertext() {
+            // Given
+            StringCryptoConverter gcmConverter = converter(new GcmConverter());
+            char[] result = gcmConverter.convertToDatabaseColumn("plain value").toCharArray();
+            result[20] = result[20] == 'A' ? 'B' : 'A';
+
+            // When
+            Throwable throwable = catchThrowable(() -> gcmConverter.convertToEntityAttribute(new String(result)));
+
+            // Then
+            assertThat(throwable).isInstanceOf(RuntimeException.class);
+        }
+
+        @Test
+        void reject_randomized_ciphertext_shorter_than_its_iv() {
+            // Given
+            StringCryptoConverter randomizedConverter = converter(new RandomizedConverter());
+            String truncatedResult = Base64.getEncoder().encodeToString(new byte[8]);
+
+            // When
+            Throwable throwable = catchThrowable(() -> randomizedConverter.convertToEntityAttribute(truncatedResult));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("PolicyEntity.");
+        }
+
+        @Test
+        void shrink_compressed_values() {
+            // Given
+            StringCryptoConverter compressedConverter = converter(new CompressedConverter());
+            StringCryptoConverter defaultConverter = converter(new DefaultConverter());
+
+            // When
+            String result = compressedConverter.convertToDatabaseColumn(LONG_VALUE);
+
+            // Then
+            assertThat(result.length()).isLessThan(defaultConverter.convertToDatabaseColumn(LONG_VALUE).length());
+            assertThat(compressedConverter.convertToEntityAttribute(result)).isEqualTo(LONG_VALUE);
+        }
+
+        @Test
+        void encode_with_url_safe_alphabet() {
+            // Given
+            StringCryptoConverter urlSafeConverter = converter(new UrlSafeConverter());
+
+            // When
+            String result = urlSafeConverter.convertToDatabaseColumn(LONG_VALUE);
+
+            // Then
+            assertThat(result).doesNotContain("+", "/", "=");
+            assertThat(urlSafeConverter.convertToEntityAttribute(result)).isEqualTo(LONG_VALUE);
+        }
+
+        @Test
+        void decrypt_cached_values_only_once() throws Exception {
+            // Given
+            CipherInitializer cipherInitializer = spy(new CipherInitializer());
+            CachedConverter cachedConverter = new CachedConverter(cipherInitializer, cryptoContextHolder);
+            cachedConverter.setEncryptionPolicies(encryptionPolicies);
+            String dbData = cachedConverter.convertToDatabaseColumn("plain value");
+
+            // When
+            cachedConverter.convertToEntityAttribute(dbData);
+            String result = cachedConverter.convertToEntityAttribute(dbData);
+
+            // Then
+            assertThat(result).isEqualTo("plain value");
+            verify(cipherInitializer, times(2)).prepareAndInitCipher(anyInt(), any(CryptoContext.class));
+        }
+
+        @Test
+        void encrypt_cached_values_only_once() throws Exception {
+            // Given
+            CipherInitializer cipherInitializer = spy(new CipherInitializer());
+            CachedConverter cachedConverter = new CachedConverter(cipherInitializer, cryptoContextHolder);
+            cachedConverter.setEncryptionPolicies(encryptionPolicies);
+            String dbData = cachedConverter.convertToDatabaseColumn("plain value");
+
+            // When
+            String result = cachedConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(result).isEqualTo(dbData);
+            verify(cipherInitializer, times(1)).prepareAndInitCipher(anyInt(), any(CryptoContext.class));
+        }
+
+        @Test
+        void not_serve_ciphertexts_cached_with_previous_key() throws Exception {
+            // Given
+            StringCryptoConverter cachedConverter = converter(new CachedConverter());
+            String dbData = cachedConverter.convertToDatabaseColumn("plain value");
+
+            // When
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext("MyOtherSecretKey"));
+            String result = cachedConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(result).isNotEqualTo(dbData);
+            assertThat(cachedConverter.convertToEntityAttribute(result)).isEqualTo("plain value");
+        }
+
+        @Test
+        void keep_cached_values_of_each_tenant_when_tenants_alternate() throws Exception {
+            // Given
+            Map<String, CryptoContext> tenantCryptoContexts = new HashMap<>();
+            tenantCryptoContexts.put("acme", new CipherInitializer().createCryptoContext("AcmeSuperSecret!"));
+            tenantCryptoContexts.put("globex", new CipherInitializer().createCryptoContext("GlobexSecretKey!"));
+            cryptoContextHolder.setTenantCryptoContextCache(new TenantCryptoContextCache(tenantCryptoContexts::get, 10, Duration.ofMinutes(30), System::nanoTime));
+            CipherInitializer cipherInitializer = spy(new CipherInitializer());
+            CachedConverter cachedConverter = new CachedConverter(cipherInitializer, cryptoContextHolder);
+            cachedConverter.setEncryptionPolicies(encryptionPolicies);
+            String[] tenants = {"acme", "globex"};
+
+            try {
+                // When
+                for (int i = 0; i < 100; i++) {
+                    TenantContext.setCurrentTenant(tenants[i % 2]);
+                    String dbData = cachedConverter.convertToDatabaseColumn("plain value");
+                    assertThat(cachedConverter.convertToEntityAttribute(dbData)).isEqualTo("plain value");
+                }
+            } finally {
+                TenantContext.clear();
+            }
+
+            // Then one encryption and one decryption per tenant: 196 of the 200 conversions are cache hits
+            verify(cipherInitializer, times(4)).prepareAndInitCipher(anyInt(), any(CryptoContext.class));
+        }
+
+        @Test
+        void encrypt_with_a_distinct_derived_key_per_field() {
+            // Given
+            StringCryptoConverter defaultConverter = converter(new DefaultConverter());
+            StringCryptoConverter derivedKeyConverter = converter(new DerivedKeyConverter());
+            StringCryptoConverter otherDerivedKeyConverter = converter(new OtherDerivedKeyConverter());
+
+            // When
+            String result = derivedKeyConverter.convertToDatabaseColumn("plain value");
+            String otherResult = otherDerivedKeyConverter.convertToDatabaseColumn("plain value");
+
+            // Then
+            assertThat(result).isNotEqualTo(defaultConverter.convertToDatabaseColumn("plain value")).isNotEqualTo(otherResult);
+            assertThat(derivedKeyConverter.convertToEntityAttribute(result)).isEqualTo("plain value");
+            assertThat(otherDerivedKeyConverter.convertToEntityAttribute(otherResult)).isEqualTo("plain value");
+        }
+
+        @Test
+        void derive_field_keys_once_per_crypto_context() {
+            // Given
+            CryptoContext cryptoContext = cryptoContextHolder.get();
+
+            // When
+            Key fieldKey = cryptoContext.getFieldKey("PolicyEntity.derivedKey");
+
+            // Then
+            assertThat(cryptoContext.getFieldKey("PolicyEntity.derivedKey")).isSameAs(fieldKey);
+            assertThat(fieldKey.getEncoded()).hasSameSizeAs(cryptoContext.getSecretKey().getEncoded())
+                    .isNotEqualTo(cryptoContext.getSecretKey().getEncoded());
+        }
+
+        @Test
+        void return_distinct_instances_of_equal_values_without_canonicalization() {
+            // Given
+            StringCryptoConverter defaultConverter = converter(new DefaultConverter());
+            String dbData = defaultConverter.convertToDatabaseColumn("plain value");
+
+            // When
+            String firstResult = defaultConverter.convertToEntityAttribute(dbData);
+            String secondResult = defaultConverter.convertToEntityAttribute(dbData);
+
+            // Then
+            assertThat(secondResult).isEqualTo(firstResult).isNotSameAs(firstResult);
+        }
+
+        @Test
+        void return_one_instance_of_equal_canonicalized_values() {
+            // Given
+            StringCryptoConverter canonicalizedConverter = converter(new CanonicalizedConverter());
+            StringCryptoConverter otherCanonicalizedConverter = converter(new CanonicalizedConverter());
+            String dbData = canonicalizedConverter.convertToDatabaseColumn("plain value");
+
+            // When
+            String firstResult = canonicalizedConverter.convertToEntityAttribute(dbData);
+            String secondResult = otherCanonicalizedConverter.convertToEntityAttribute(dbData);
+
+            // Then
+            assertThat(secondResult).isSameAs(firstResult);
+            assertThat(encryptionPolicies.getCanonicalizationStatistics()).containsOnlyKeys("PolicyEntity.canonicalized");
+            CanonicalizationStatistics statistics = encryptionPolicies.getCanonicalizationStatistics().get("PolicyEntity.canonicalized");
+            assertThat(statistics.getLookups()).isEqualTo(2);
+            assertThat(statistics.getHits()).isEqualTo(1);
+            assertThat(statistics.getSavedBytes()).isEqualTo(56);
+        }
+    }
+
+    @Nested
+    class FieldCodecPlanShould {
+
+        @Test
+        void disable_cache_in_randomized_mode() {
+            // When
+            FieldCodecPlan fieldCodecPlan = new FieldCodecPlan("PolicyEntity.value", Algorithm.AES_CBC, Mode.RANDOMIZED, false, false, true, 100, 0, Encoding.BASE64);
+
+            // Then
+            assertThat(fieldCodecPlan.isCached()).isFalse();
+        }
+    }
+
+    private StringCryptoConverter converter(StringCryptoConverter converter) {
+        converter.setCryptoContextHolder(cryptoContextHolder);
+        converter.setEncryptionPolicies(encryptionPolicies);
+        return converter;
+    }
+
+    static class PolicyEntity {
+
+        @Encrypted
+        @Convert(converter = DefaultConverter.class)
+        String defaultValue;
+
+        @Encrypted(mode = Mode.RANDOMIZED)
+        @Convert(converter = RandomizedConverter.class)
+        String randomized;
+
+        @Encrypted(algorithm = Algorithm.AES_GCM, mode = Mode.RANDOMIZED)
+        @Convert(converter = GcmConverter.class)
+        String gcm;
+
+        @Encrypted(compress = true)
+        @Convert(converter = CompressedConverter.class)
+        String compressed;
+
+        @Encrypted(encoding = Encoding.BASE64_URL)
+        @Convert(converter = UrlSafeConverter.class)
+        String urlSafe;
+
+        @Encrypted(cache = true)
+        @Convert(converter = CachedConverter.class)
+        String cached;
+
+        @Encrypted(canonicalize = true)
+        @Convert(converter = CanonicalizedConverter.class)
+        String canonicalized;
+
+        @Encrypted(derivedKey = true)
+        @Convert(converter = DerivedKeyConverter.class)
+        String derivedKey;
+
+        @Encrypted(mode = Mode.RANDOMIZED, derivedKey = true)
+        @Convert(converter = OtherDerivedKeyConverter.class)
+        String otherDerivedKey;
+    }
+
+    static class NotConvertedEntity {
+
+        @Encrypted
+        String value;
+    }
+
+    static class DeterministicGcmEntity {
+
+        @Encrypted(algorithm = Algorithm.AES_GCM)
+        @Convert(converter = GcmConverter.class)
+        String value;
+    }
+
+    static class RandomizedCachedEntity {
+
+        @Encrypted(mode = Mode.RANDOMIZED, cache = true)
+        @Convert(converter = CachedConverter.class)
+        String value;
+    }
+
+    static class CanonicalizedDateEntity {
+
+        @Encrypted(canonicalize = true)
+        @Convert(converter = CanonicalizedDateConverter.class)
+        LocalDate value;
+    }
+
+    static class SharedConverterEntity {
+
+        @Encrypted
+        @Convert(converter = DefaultConverter.class)
+        String firstValue;
+
+        @Encrypted
+        @Convert(converter = DefaultConverter.class)
+        String secondValue;
+    }
+
+    static class DefaultConverter extends StringCryptoConverter {
+    }
+
+    static class RandomizedConverter extends StringCryptoConverter {
+    }
+
+    static class GcmConverter extends StringCryptoConverter {
+    }
+
+    static class CompressedConverter extends StringCryptoConverter {
+    }
+
+    static class UrlSafeConverter extends StringCryptoConverter {
+    }
+
+    static class CanonicalizedConverter extends StringCryptoConverter {
+    }
+
+    static class DerivedKeyConverter extends StringCryptoConverter {
+    }
+
+    static class OtherDerivedKeyConverter extends StringCryptoConverter {
+    }
+
+    static class CanonicalizedDateConverter extends LocalDateCryptoConverter {
+    }
+
+    static class CachedConverter extends StringCryptoConverter {
+
+        CachedConverter() {
+        }
+
+        CachedConverter(CipherInitializer cipherInitializer, CryptoContextHolder cryptoContextHolder) {
+            super(cipherInitializer, cryptoContextHolder);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+/**
+ * Test vectors of RFC 5869, appendix A.
+ */
+class HkdfTest {
+
+    @Test
+    void extract_and_expand_should_match_rfc_test_case_1() {
+        // Given
+        byte[] inputKeyMaterial = filled(22, 0x0b);
+        byte[] salt = hex("000102030405060708090a0b0c");
+        byte[] info = hex("f0f1f2f3f4f5f6f7f8f9");
+
+        // When
+        byte[] pseudoRandomKey = Hkdf.extract(salt, inputKeyMaterial);
+        byte[] outputKeyMaterial = Hkdf.expand(pseudoRandomKey, info, 42);
+
+        // Then
+        assertThat(pseudoRandomKey).isEqualTo(hex("077709362c2e32df0ddc3f0dc47bba6390b6c73bb50f9c3122ec844ad7c2b3e5"));
+        assertThat(outputKeyMaterial).isEqualTo(hex("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865"));
+    }
+
+    @Test
+    void extract_and_expand_should_match_rfc_test_case_3_without_salt_nor_info() {
+        // Given
+        byte[] inputKeyMaterial = filled(22, 0x0b);
+
+        // When
+        byte[] pseudoRandomKey = Hkdf.extract(null, inputKeyMaterial);
+        byte[] outputKeyMaterial = Hkdf.expand(pseudoRandomKey, new byte[0], 42);
+
+        // Then
+        assertThat(pseudoRandomKey).isEqualTo(hex("19ef24a32c717b167f33a91d6f648bdf96596776afdb6377ac434c1c293ccb04"));
+        assertThat(outputKeyMaterial).isEqualTo(hex("8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8"));
+    }
+
+    @Test
+    void expand_should_reject_too_long_output() {
+        // When
+        Throwable throwable = catchThrowable(() -> Hkdf.expand(new byte[32], new byte[0], 255 * 32 + 1));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the IV throughput of a shared {@link SecureRandom} with the one of {@link IvSource}, from one thread up to
+ * twice the number of available processors. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class IvSourceBenchmark {
+
+    private static final int IV_LENGTH = 16;
+    private static final int IVS_PER_THREAD = 200_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void compare_shared_secure_random_and_iv_source() throws Exception {
+        SecureRandom sharedSecureRandom = new SecureRandom();
+        IvSource ivSource = new IvSource(IvSource.DEFAULT_STRIPE_COUNT, IvSource.DEFAULT_RESEED_INTERVAL);
+        int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, only the last one is representative
+            System.out.println("Round " + round + "/" + ROUNDS);
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double sharedIvsPerMicro = measureIvsPerMicro(threads, () -> {
+                    byte[] iv = new byte[IV_LENGTH];
+                    sharedSecureRandom.nextBytes(iv);
+                    return iv;
+                });
+                double ivSourceIvsPerMicro = measureIvsPerMicro(threads, () -> ivSource.nextIv(IV_LENGTH));
+                System.out.printf("  %2d threads  shared SecureRandom: %6.2f IVs/us, IvSource: %6.2f IVs/us%n",
+                        threads, sharedIvsPerMicro, ivSourceIvsPerMicro);
+            }
+        }
+    }
+
+    private static double measureIvsPerMicro(int threads, Supplier<byte[]> ivGenerator) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    byte[] iv = null;
+                    for (int i = 0; i < IVS_PER_THREAD; i++) {
+                        iv = ivGenerator.get();
+                    }
+                    return iv;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<byte[]> future : futures) {
+                assertThat(future.get()).hasSize(IV_LENGTH);
+            }
+            long elapsedMicros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            return (double) threads * IVS_PER_THREAD / elapsedMicros;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+class IvSourceTest {
+
+    @Test
+    void next_iv_should_return_iv_of_requested_length() {
+        // Given
+        IvSource ivSource = new IvSource(IvSource.DEFAULT_STRIPE_COUNT, IvSource.DEFAULT_RESEED_INTERVAL);
+
+        // When
+        byte[] iv = ivSource.nextIv(12);
+
+        // Then
+        assertThat(iv).hasSize(12);
+    }
+
+    @Test
+    void next_iv_should_keep_returning_distinct_ivs_across_reseeds() {
+        // Given
+        IvSource ivSource = new IvSource(1, 2);
+
+        // When
+        Set<ByteBuffer> ivs = IntStream.range(0, 100)
+                .mapToObj(i -> ByteBuffer.wrap(ivSource.nextIv(16)))
+                .collect(Collectors.toSet());
+
+        // Then
+        assertThat(ivs).hasSize(100);
+    }
+
+    @Test
+    void next_iv_should_return_distinct_ivs_across_threads() throws Exception {
+        // Given
+        IvSource ivSource = new IvSource(IvSource.DEFAULT_STRIPE_COUNT, IvSource.DEFAULT_RESEED_INTERVAL);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        Callable<List<ByteBuffer>> generateIvs = () -> IntStream.range(0, 1_000)
+                .mapToObj(i -> ByteBuffer.wrap(ivSource.nextIv(16)))
+                .collect(Collectors.toList());
+
+        // When
+        Set<ByteBuffer> ivs = new HashSet<>();
+        try {
+            for (Future<List<ByteBuffer>> future : executorService.invokeAll(Collections.nCopies(4, generateIvs))) {
+                ivs.addAll(future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Then
+        assertThat(ivs).hasSize(4_000);
+    }
+
+    @Test
+    void next_iv_should_share_a_bounded_number_of_stripes_between_threads() throws Exception {
+        // Given
+        IvSource ivSource = new IvSource(2, IvSource.DEFAULT_RESEED_INTERVAL);
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        Callable<List<ByteBuffer>> generateIvs = () -> IntStream.range(0, 1_000)
+                .mapToObj(i -> ByteBuffer.wrap(ivSource.nextIv(16)))
+                .collect(Collectors.toList());
+
+        // When
+        Set<ByteBuffer> ivs = new HashSet<>();
+        try {
+            for (Future<List<ByteBuffer>> future : executorService.invokeAll(Collections.nCopies(16, generateIvs))) {
+                ivs.addAll(future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Then
+        assertThat(ivs).hasSize(16_000);
+        assertThat(ivSource.createdStripeCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void next_iv_should_reject_iv_longer_than_a_block() {
+        // Given
+        IvSource ivSource = new IvSource(IvSource.DEFAULT_STRIPE_COUNT, IvSource.DEFAULT_RESEED_INTERVAL);
+
+        // When
+        Throwable throwable = catchThrowable(() -> ivSource.nextIv(1025));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void constructor_should_reject_non_positive_stripe_count() {
+        // When
+        Throwable throwable = catchThrowable(() -> new IvSource(0, IvSource.DEFAULT_RESEED_INTERVAL));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void constructor_should_reject_non_positive_reseed_interval() {
+        // When
+        Throwable throwable = catchThrowable(() -> new IvSource(1, 0));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+}
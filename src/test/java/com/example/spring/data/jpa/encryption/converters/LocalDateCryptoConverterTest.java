@@ -39,14 +39,20 @@ class LocalDateCryptoConverterTest {
     @Mock
     private CipherInitializer cipherInitializer;
 
+    private CryptoContextHolder cryptoContextHolder;
+
+    private CryptoContext cryptoContext;
+
     @BeforeEach
     void setUp() throws Exception {
-        localDateCryptoConverter = new LocalDateCryptoConverter(cipherInitializer);
+        cryptoContext = new CipherInitializer().createCryptoContext("MySuperSecretKey");
+        cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(cryptoContext);
+
+        localDateCryptoConverter = new LocalDateCryptoConverter(cipherInitializer, cryptoContextHolder);
 
         spiedLocalDateCryptoConverter = spy(localDateCryptoConverter);
         doAnswer(returnsSecondArg()).when(spiedLocalDateCryptoConverter).callCipherDoFinal(any(), any());
-
-        KeyProperty.DATABASE_ENCRYPTION_KEY = "MySuperSecretKey";
     }
 
     @Nested
@@ -68,7 +74,7 @@ class LocalDateCryptoConverterTest {
         void return_encrypted_string_as_base_64() throws Exception {
             // Given
             Cipher cipher = mock(Cipher.class);
-            when(cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, KeyProperty.DATABASE_ENCRYPTION_KEY)).thenReturn(cipher);
+            when(cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, cryptoContext)).thenReturn(cipher);
 
             // When
             String result = spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER);
@@ -79,9 +85,9 @@ class LocalDateCryptoConverterTest {
         }
 
         @Test
-        void return_formatted_local_date_but_not_encrypted_when_database_encryption_key_is_null() {
+        void return_formatted_local_date_but_not_encrypted_when_database_encryption_key_is_null() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = null;
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(null));
 
             // When
             String result = spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER);
@@ -91,9 +97,9 @@ class LocalDateCryptoConverterTest {
         }
 
         @Test
-        void return_formatted_local_date_but_not_encrypted_when_database_encryption_key_is_empty() {
+        void return_formatted_local_date_but_not_encrypted_when_database_encryption_key_is_empty() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = "";
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(""));
 
             // When
             String result = spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER);
@@ -106,7 +112,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidKeyException() throws Exception {
             // Given
             InvalidKeyException invalidKeyException = new InvalidKeyException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidKeyException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidKeyException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER));
@@ -119,7 +125,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchAlgorithmException() throws Exception {
             // Given
             NoSuchAlgorithmException noSuchAlgorithmException = new NoSuchAlgorithmException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchAlgorithmException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchAlgorithmException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER));
@@ -132,7 +138,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchPaddingException() throws Exception {
             // Given
             NoSuchPaddingException noSuchPaddingException = new NoSuchPaddingException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchPaddingException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchPaddingException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER));
@@ -145,7 +151,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidAlgorithmParameterException() throws Exception {
             // Given
             InvalidAlgorithmParameterException invalidAlgorithmParameterException = new InvalidAlgorithmParameterException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidAlgorithmParameterException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidAlgorithmParameterException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToDatabaseColumn(LOCAL_DATE_TO_CIPHER));
@@ -212,7 +218,7 @@ class LocalDateCryptoConverterTest {
         void return_decrypted_string() throws Exception {
             // Given
             Cipher cipher = mock(Cipher.class);
-            when(cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, KeyProperty.DATABASE_ENCRYPTION_KEY)).thenReturn(cipher);
+            when(cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, cryptoContext)).thenReturn(cipher);
 
             // When
             LocalDate result = spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_DECIPHER_AS_STRING);
@@ -223,9 +229,9 @@ class LocalDateCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_local_date_when_database_encryption_key_is_null() {
+        void return_unchanged_local_date_when_database_encryption_key_is_null() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = null;
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(null));
 
             // When
             LocalDate result = spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_CIPHER_AS_STRING);
@@ -235,9 +241,9 @@ class LocalDateCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_local_date_when_database_encryption_key_is_empty() {
+        void return_unchanged_local_date_when_database_encryption_key_is_empty() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = "";
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(""));
 
             // When
             LocalDate result = spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_CIPHER_AS_STRING);
@@ -250,7 +256,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidKeyException() throws Exception {
             // Given
             InvalidKeyException invalidKeyException = new InvalidKeyException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidKeyException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidKeyException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_DECIPHER_AS_STRING));
@@ -263,7 +269,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchAlgorithmException() throws Exception {
             // Given
             NoSuchAlgorithmException noSuchAlgorithmException = new NoSuchAlgorithmException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchAlgorithmException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchAlgorithmException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_DECIPHER_AS_STRING));
@@ -276,7 +282,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchPaddingException() throws Exception {
             // Given
             NoSuchPaddingException noSuchPaddingException = new NoSuchPaddingException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchPaddingException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchPaddingException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_DECIPHER_AS_STRING));
@@ -289,7 +295,7 @@ class LocalDateCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidAlgorithmParameterException() throws Exception {
             // Given
             InvalidAlgorithmParameterException invalidAlgorithmParameterException = new InvalidAlgorithmParameterException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidAlgorithmParameterException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidAlgorithmParameterException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedLocalDateCryptoConverter.convertToEntityAttribute(LOCAL_DATE_TO_DECIPHER_AS_STRING));
@@ -0,0 +1,59 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringCanonicalizerTest {
+
+    @Test
+    void canonicalize_should_return_first_instance_of_equal_values() {
+        // Given
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+        String firstValue = new String("Damien");
+
+        // When
+        canonicalizer.canonicalize(firstValue);
+        String result = canonicalizer.canonicalize(new String("Damien"));
+
+        // Then
+        assertThat(result).isSameAs(firstValue);
+    }
+
+    @Test
+    void canonicalize_should_replace_value_of_the_same_slot_on_miss() {
+        // Given
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(1);
+        String firstValue = new String("Damien");
+
+        // When
+        canonicalizer.canonicalize(firstValue);
+        canonicalizer.canonicalize("Beaufils");
+        String result = canonicalizer.canonicalize(new String("Damien"));
+
+        // Then
+        assertThat(result).isNotSameAs(firstValue);
+        assertThat(canonicalizer.statistics().getHits()).isZero();
+    }
+
+    @Test
+    void statistics_should_estimate_bytes_saved_by_hits() {
+        // Given
+        StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+
+        // When
+        canonicalizer.canonicalize(new String("Damien"));
+        canonicalizer.canonicalize(new String("Damien"));
+        canonicalizer.canonicalize(new String("Zo\u00EB"));
+        canonicalizer.canonicalize(new String("Zo\u00EB"));
+        canonicalizer.canonicalize(new String("\u0141ukasz"));
+        canonicalizer.canonicalize(new String("\u0141ukasz"));
+
+        // Then
+        CanonicalizationStatistics statistics = canonicalizer.statistics();
+        assertThat(statistics.getLookups()).isEqualTo(6);
+        assertThat(statistics.getHits()).isEqualTo(3);
+        // 40 bytes of headers, plus 8 bytes for 6 and 3 Latin-1 characters, and 16 bytes for 6 UTF-16 characters
+        assertThat(statistics.getSavedBytes()).isEqualTo(48 + 48 + 56);
+    }
+}
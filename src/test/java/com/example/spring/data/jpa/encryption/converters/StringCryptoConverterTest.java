@@ -36,14 +36,20 @@ class StringCryptoConverterTest {
     @Mock
     private CipherInitializer cipherInitializer;
 
+    private CryptoContextHolder cryptoContextHolder;
+
+    private CryptoContext cryptoContext;
+
     @BeforeEach
     void setUp() throws Exception {
-        stringCryptoConverter = new StringCryptoConverter(cipherInitializer);
+        cryptoContext = new CipherInitializer().createCryptoContext("MySuperSecretKey");
+        cryptoContextHolder = new CryptoContextHolder();
+        cryptoContextHolder.set(cryptoContext);
+
+        stringCryptoConverter = new StringCryptoConverter(cipherInitializer, cryptoContextHolder);
 
         spiedStringCryptoConverter = spy(stringCryptoConverter);
         doAnswer(returnsSecondArg()).when(spiedStringCryptoConverter).callCipherDoFinal(any(), any());
-
-        KeyProperty.DATABASE_ENCRYPTION_KEY = "MySuperSecretKey";
     }
 
     @Nested
@@ -77,7 +83,7 @@ class StringCryptoConverterTest {
         void return_encrypted_string_as_base_64() throws Exception {
             // Given
             Cipher cipher = mock(Cipher.class);
-            when(cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, KeyProperty.DATABASE_ENCRYPTION_KEY)).thenReturn(cipher);
+            when(cipherInitializer.prepareAndInitCipher(Cipher.ENCRYPT_MODE, cryptoContext)).thenReturn(cipher);
 
             // When
             String result = spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER);
@@ -88,9 +94,9 @@ class StringCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_string_when_database_encryption_key_is_null() {
+        void return_unchanged_string_when_database_encryption_key_is_null() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = null;
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(null));
 
             // When
             String result = spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER);
@@ -100,9 +106,9 @@ class StringCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_string_when_database_encryption_key_is_empty() {
+        void return_unchanged_string_when_database_encryption_key_is_empty() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = "";
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(""));
 
             // When
             String result = spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER);
@@ -115,7 +121,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidKeyException() throws Exception {
             // Given
             InvalidKeyException invalidKeyException = new InvalidKeyException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidKeyException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidKeyException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER));
@@ -128,7 +134,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchAlgorithmException() throws Exception {
             // Given
             NoSuchAlgorithmException noSuchAlgorithmException = new NoSuchAlgorithmException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchAlgorithmException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchAlgorithmException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER));
@@ -141,7 +147,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchPaddingException() throws Exception {
             // Given
             NoSuchPaddingException noSuchPaddingException = new NoSuchPaddingException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchPaddingException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchPaddingException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER));
@@ -154,7 +160,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidAlgorithmParameterException() throws Exception {
             // Given
             InvalidAlgorithmParameterException invalidAlgorithmParameterException = new InvalidAlgorithmParameterException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidAlgorithmParameterException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidAlgorithmParameterException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToDatabaseColumn(STRING_TO_CIPHER));
@@ -221,7 +227,7 @@ class StringCryptoConverterTest {
         void return_decrypted_string() throws Exception {
             // Given
             Cipher cipher = mock(Cipher.class);
-            when(cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, KeyProperty.DATABASE_ENCRYPTION_KEY)).thenReturn(cipher);
+            when(cipherInitializer.prepareAndInitCipher(Cipher.DECRYPT_MODE, cryptoContext)).thenReturn(cipher);
 
             // When
             String result = spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER);
@@ -232,9 +238,9 @@ class StringCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_string_when_database_encryption_key_is_null() {
+        void return_unchanged_string_when_database_encryption_key_is_null() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = null;
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(null));
 
             // When
             String result = spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER);
@@ -244,9 +250,9 @@ class StringCryptoConverterTest {
         }
 
         @Test
-        void return_unchanged_string_when_database_encryption_key_is_empty() {
+        void return_unchanged_string_when_database_encryption_key_is_empty() throws Exception {
             // Given
-            KeyProperty.DATABASE_ENCRYPTION_KEY = "";
+            cryptoContextHolder.set(new CipherInitializer().createCryptoContext(""));
 
             // When
             String result = spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER);
@@ -259,7 +265,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidKeyException() throws Exception {
             // Given
             InvalidKeyException invalidKeyException = new InvalidKeyException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidKeyException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidKeyException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER));
@@ -272,7 +278,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchAlgorithmException() throws Exception {
             // Given
             NoSuchAlgorithmException noSuchAlgorithmException = new NoSuchAlgorithmException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchAlgorithmException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchAlgorithmException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER));
@@ -285,7 +291,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_NoSuchPaddingException() throws Exception {
             // Given
             NoSuchPaddingException noSuchPaddingException = new NoSuchPaddingException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(noSuchPaddingException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(noSuchPaddingException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER));
@@ -298,7 +304,7 @@ class StringCryptoConverterTest {
         void rethrow_exception_when_cipher_initialization_fails_with_InvalidAlgorithmParameterException() throws Exception {
             // Given
             InvalidAlgorithmParameterException invalidAlgorithmParameterException = new InvalidAlgorithmParameterException();
-            when(cipherInitializer.prepareAndInitCipher(anyInt(), anyString())).thenThrow(invalidAlgorithmParameterException);
+            when(cipherInitializer.prepareAndInitCipher(anyInt(), any(CryptoContext.class))).thenThrow(invalidAlgorithmParameterException);
 
             // When
             Throwable throwable = catchThrowable(() -> spiedStringCryptoConverter.convertToEntityAttribute(STRING_TO_DECIPHER));
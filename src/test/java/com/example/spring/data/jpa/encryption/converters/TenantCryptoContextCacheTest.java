@@ -0,0 +1,100 @@
+package com.example.spring.data.jpa.encryption.converters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class TenantCryptoContextCacheTest {
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private AtomicLong nanoClock;
+    private AtomicInteger loadCount;
+
+    private TenantCryptoContextCache tenantCryptoContextCache;
+
+    @BeforeEach
+    void setUp() {
+        nanoClock = new AtomicLong();
+        loadCount = new AtomicInteger();
+        tenantCryptoContextCache = new TenantCryptoContextCache(tenantId -> {
+            loadCount.incrementAndGet();
+            if (tenantId.equals("unknown")) {
+                throw new IllegalStateException("No encryption key configured for tenant " + tenantId);
+            }
+            return new CryptoContext("AES/CBC/PKCS5Padding", null, null);
+        }, 2, IDLE_TIMEOUT, nanoClock::get);
+    }
+
+    @Nested
+    class GetShould {
+
+        @Test
+        void load_context_of_tenant_only_once() {
+            // When
+            CryptoContext firstCryptoContext = tenantCryptoContextCache.get("acme");
+            CryptoContext secondCryptoContext = tenantCryptoContextCache.get("acme");
+
+            // Then
+            assertThat(secondCryptoContext).isSameAs(firstCryptoContext);
+            assertThat(loadCount).hasValue(1);
+        }
+
+        @Test
+        void evict_least_recently_used_tenant_when_cache_is_full() {
+            // Given
+            tenantCryptoContextCache.get("acme");
+            nanoClock.addAndGet(Duration.ofSeconds(2).toNanos());
+            tenantCryptoContextCache.get("globex");
+            nanoClock.addAndGet(Duration.ofSeconds(2).toNanos());
+            tenantCryptoContextCache.get("acme");
+
+            // When
+            tenantCryptoContextCache.get("initech");
+            tenantCryptoContextCache.get("acme");
+            tenantCryptoContextCache.get("globex");
+
+            // Then
+            assertThat(loadCount).hasValue(4);
+            assertThat(tenantCryptoContextCache.size()).isEqualTo(2);
+        }
+
+        @Test
+        void not_cache_tenant_without_key() {
+            // When
+            Throwable throwable = catchThrowable(() -> tenantCryptoContextCache.get("unknown"));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class);
+            assertThat(tenantCryptoContextCache.size()).isZero();
+        }
+    }
+
+    @Nested
+    class EvictIdleTenantsShould {
+
+        @Test
+        void evict_tenants_not_used_since_idle_timeout() {
+            // Given
+            tenantCryptoContextCache.get("acme");
+            nanoClock.addAndGet(IDLE_TIMEOUT.toNanos() / 2);
+            tenantCryptoContextCache.get("globex");
+            nanoClock.addAndGet(IDLE_TIMEOUT.toNanos() / 2 + 1);
+
+            // When
+            tenantCryptoContextCache.evictIdleTenants();
+
+            // Then
+            assertThat(tenantCryptoContextCache.size()).isEqualTo(1);
+            tenantCryptoContextCache.get("globex");
+            assertThat(loadCount).hasValue(2);
+        }
+    }
+}
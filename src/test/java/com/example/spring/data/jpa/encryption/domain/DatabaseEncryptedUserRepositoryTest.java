@@ -0,0 +1,119 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContext;
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.DatabaseEncryptionConfiguration;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        // Set before the test transaction gets its connection, which holds the key
+        "example.database.encryption.key=MySuperSecretKey",
+        "example.database.encryption.database-side.enabled=true"
+})
+@Import({CryptoContextHolder.class, DatabaseEncryptionConfiguration.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class})
+class DatabaseEncryptedUserRepositoryTest {
+
+    @Autowired
+    private DatabaseEncryptedUserRepository databaseEncryptedUserRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CryptoContextHolder cryptoContextHolder;
+
+    private DatabaseEncryptedUser user;
+
+    @BeforeEach
+    void setUp() {
+        user = new DatabaseEncryptedUser();
+        user.setFirstName("Damien");
+        user.setLastName("Beaufils");
+        user.setEmail("damien@example.org");
+        user.setBirthDate(LocalDate.of(1988, 3, 28));
+        user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+    }
+
+    @Test
+    void save_should_store_values_encrypted_by_database() {
+        // When
+        Long id = databaseEncryptedUserRepository.save(user).getId();
+        testEntityManager.flush();
+
+        // Then
+        byte[] storedFirstName = jdbcTemplate.queryForObject("select first_name from database_encrypted_user where id = ?", byte[].class, id);
+        assertThat(storedFirstName).hasSize(16).isNotEqualTo("Damien".getBytes(UTF_8));
+    }
+
+    @Test
+    void find_by_id_should_return_values_decrypted_by_database() {
+        // Given
+        Long id = databaseEncryptedUserRepository.save(user).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        DatabaseEncryptedUser foundUser = databaseEncryptedUserRepository.findById(id).orElseThrow(AssertionError::new);
+
+        // Then
+        assertThat(foundUser).isEqualToComparingFieldByField(user);
+    }
+
+    @Test
+    void find_by_id_should_keep_trailing_nul_characters() {
+        // Given
+        user.setFirstName("Damien\u0000");
+        Long id = databaseEncryptedUserRepository.save(user).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        DatabaseEncryptedUser foundUser = databaseEncryptedUserRepository.findById(id).orElseThrow(AssertionError::new);
+
+        // Then
+        assertThat(foundUser.getFirstName()).isEqualTo("Damien\u0000");
+    }
+
+    @Test
+    void get_connection_should_fail_without_encryption_key() {
+        // Given
+        CryptoContext cryptoContext = cryptoContextHolder.get();
+        cryptoContextHolder.set(CryptoContext.disabled());
+
+        try {
+            // When / Then
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("no encryption key");
+        } finally {
+            cryptoContextHolder.set(cryptoContext);
+        }
+    }
+}
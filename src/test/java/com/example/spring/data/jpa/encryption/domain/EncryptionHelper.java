@@ -8,13 +8,13 @@ final class EncryptionHelper {
     private EncryptionHelper() {
     }
 
-    static void enableDatabaseEncryption(TestEntityManager testEntityManager) {
-        KeyProperty.DATABASE_ENCRYPTION_KEY = "MySuperSecretKey";
+    static void enableDatabaseEncryption(KeyProperty keyProperty, TestEntityManager testEntityManager) {
+        keyProperty.setDatabase("MySuperSecretKey");
         testEntityManager.clear();
     }
 
-    static void disableDatabaseEncryption(TestEntityManager testEntityManager) {
-        KeyProperty.DATABASE_ENCRYPTION_KEY = null;
+    static void disableDatabaseEncryption(KeyProperty keyProperty, TestEntityManager testEntityManager) {
+        keyProperty.setDatabase(null);
         testEntityManager.clear();
     }
 }
@@ -0,0 +1,182 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.DatabaseEncryptionConfiguration;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares encryption by one JPA converter per field ({@link User}), by one JPA converter per row ({@link SealedUser})
+ * and by the database engine ({@link DatabaseEncryptedUser}) for inserts, point reads and full scans.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.database.encryption.key=MySuperSecretKey",
+        "example.database.encryption.database-side.enabled=true"
+})
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, DatabaseEncryptionConfiguration.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class})
+class EncryptionModeBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int SCANS = 10;
+    private static final int ROUNDS = 3;
+    private static final int CONVERSIONS = 100_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SealedUserRepository sealedUserRepository;
+
+    @Autowired
+    private DatabaseEncryptedUserRepository databaseEncryptedUserRepository;
+
+    @Autowired
+    private CryptoConverterFactory cryptoConverterFactory;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void compare_converter_and_database_encryption() {
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, only the last one is representative
+            System.out.println("Round " + round + "/" + ROUNDS);
+            run("converter", userRepository, i -> {
+                User user = new User();
+                user.setFirstName("first name " + i);
+                user.setLastName("last name " + i);
+                user.setEmail("email" + i + "@example.org");
+                user.setBirthDate(LocalDate.of(1988, 3, 28).plusDays(i));
+                user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17).plusSeconds(i));
+                return user;
+            }, User::getId);
+            run("sealed", sealedUserRepository, i -> {
+                SealedUser user = new SealedUser();
+                user.setFirstName("first name " + i);
+                user.setLastName("last name " + i);
+                user.setEmail("email" + i + "@example.org");
+                user.setBirthDate(LocalDate.of(1988, 3, 28).plusDays(i));
+                user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17).plusSeconds(i));
+                return user;
+            }, SealedUser::getId);
+            run("database", databaseEncryptedUserRepository, i -> {
+                DatabaseEncryptedUser user = new DatabaseEncryptedUser();
+                user.setFirstName("first name " + i);
+                user.setLastName("last name " + i);
+                user.setEmail("email" + i + "@example.org");
+                user.setBirthDate(LocalDate.of(1988, 3, 28).plusDays(i));
+                user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17).plusSeconds(i));
+                return user;
+            }, DatabaseEncryptedUser::getId);
+        }
+    }
+
+    @Test
+    void compare_per_field_and_sealed_conversion() {
+        UserConverters.FirstName firstNameConverter = cryptoConverterFactory.create(UserConverters.FirstName.class);
+        UserConverters.LastName lastNameConverter = cryptoConverterFactory.create(UserConverters.LastName.class);
+        UserConverters.Email emailConverter = cryptoConverterFactory.create(UserConverters.Email.class);
+        UserConverters.BirthDate birthDateConverter = cryptoConverterFactory.create(UserConverters.BirthDate.class);
+        UserConverters.CreationDate creationDateConverter = cryptoConverterFactory.create(UserConverters.CreationDate.class);
+        UserConverters.SealedFields sealedFieldsConverter = cryptoConverterFactory.create(UserConverters.SealedFields.class);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Round " + round + "/" + ROUNDS);
+            long perFieldNanos = measure(() -> {
+                for (int i = 0; i < CONVERSIONS; i++) {
+                    SealedUserFields fields = fields(i);
+                    String firstName = firstNameConverter.convertToDatabaseColumn(fields.getFirstName());
+                    String lastName = lastNameConverter.convertToDatabaseColumn(fields.getLastName());
+                    String email = emailConverter.convertToDatabaseColumn(fields.getEmail());
+                    String birthDate = birthDateConverter.convertToDatabaseColumn(fields.getBirthDate());
+                    String creationDate = creationDateConverter.convertToDatabaseColumn(fields.getCreationDate());
+                    assertThat(new SealedUserFields(firstNameConverter.convertToEntityAttribute(firstName), lastNameConverter.convertToEntityAttribute(lastName),
+                            emailConverter.convertToEntityAttribute(email), birthDateConverter.convertToEntityAttribute(birthDate),
+                            creationDateConverter.convertToEntityAttribute(creationDate))).isEqualTo(fields);
+                }
+                return null;
+            });
+            long sealedNanos = measure(() -> {
+                for (int i = 0; i < CONVERSIONS; i++) {
+                    SealedUserFields fields = fields(i);
+                    String sealedFields = sealedFieldsConverter.convertToDatabaseColumn(fields);
+                    assertThat(sealedFieldsConverter.convertToEntityAttribute(sealedFields)).isEqualTo(fields);
+                }
+                return null;
+            });
+            System.out.printf("  per field: %6.2f us/row, sealed: %6.2f us/row (encrypt and decrypt)%n",
+                    perUser(perFieldNanos, CONVERSIONS), perUser(sealedNanos, CONVERSIONS));
+        }
+    }
+
+    private static SealedUserFields fields(int i) {
+        return new SealedUserFields("first name " + i, "last name " + i, "email" + i + "@example.org",
+                LocalDate.of(1988, 3, 28).plusDays(i % 10_000), LocalDateTime.of(2017, 7, 10, 9, 58, 17).plusSeconds(i));
+    }
+
+    private <T> void run(String mode, JpaRepository<T, Long> repository, Function<Integer, T> userFactory, Function<T, Long> idGetter) {
+        List<Long> ids = new ArrayList<>(USERS);
+        long insertNanos = measure(() -> {
+            for (int i = 0; i < USERS; i++) {
+                ids.add(idGetter.apply(repository.save(userFactory.apply(i))));
+            }
+            testEntityManager.flush();
+            return ids;
+        });
+        testEntityManager.clear();
+
+        long pointReadNanos = measure(() -> {
+            for (Long id : ids) {
+                assertThat(repository.findById(id)).isPresent();
+                testEntityManager.clear();
+            }
+            return ids;
+        });
+
+        long scanNanos = measure(() -> {
+            for (int i = 0; i < SCANS; i++) {
+                assertThat(repository.findAll()).hasSize(USERS);
+                testEntityManager.clear();
+            }
+            return ids;
+        });
+
+        System.out.printf("  %-9s insert: %8.1f us/user, point read: %8.1f us/user, scan: %8.1f us/user%n", mode,
+                perUser(insertNanos, USERS), perUser(pointReadNanos, USERS), perUser(scanNanos, USERS * SCANS));
+        repository.deleteAllInBatch();
+    }
+
+    private static long measure(Supplier<?> operation) {
+        long start = System.nanoTime();
+        operation.get();
+        return System.nanoTime() - start;
+    }
+
+    private static double perUser(long nanos, int users) {
+        return (double) TimeUnit.NANOSECONDS.toMicros(nanos) / users;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.spring.data.jpa.encryption.domain;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "example.database.encryption.key=MySuperSecretKey")
+@Import({CryptoContextHolder.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class})
+class SealedUserRepositoryTest {
+
+    @Autowired
+    private SealedUserRepository sealedUserRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SealedUser user;
+
+    @BeforeEach
+    void setUp() {
+        user = new SealedUser();
+        user.setFirstName("Damien");
+        user.setLastName("Beaufils");
+        user.setEmail("damien@example.org");
+        user.setBirthDate(LocalDate.of(1988, 3, 28));
+        user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17, 123_456_789));
+    }
+
+    @Test
+    void save_should_store_all_fields_in_one_encrypted_column() {
+        // When
+        Long id = sealedUserRepository.save(user).getId();
+        testEntityManager.flush();
+
+        // Then
+        String storedFields = jdbcTemplate.queryForObject("select sealed_fields from sealed_user where id = ?", String.class, id);
+        assertThat(storedFields).isNotEmpty().doesNotContain("Damien", "Beaufils", "example.org");
+    }
+
+    @Test
+    void save_should_store_different_ciphertexts_for_equal_fields() {
+        // Given
+        SealedUser otherUser = new SealedUser();
+        otherUser.setFirstName(user.getFirstName());
+        otherUser.setLastName(user.getLastName());
+        otherUser.setEmail(user.getEmail());
+        otherUser.setBirthDate(user.getBirthDate());
+        otherUser.setCreationDate(user.getCreationDate());
+
+        // When
+        Long id = sealedUserRepository.save(user).getId();
+        Long otherId = sealedUserRepository.save(otherUser).getId();
+        testEntityManager.flush();
+
+        // Then
+        String storedFields = jdbcTemplate.queryForObject("select sealed_fields from sealed_user where id = ?", String.class, id);
+        String otherStoredFields = jdbcTemplate.queryForObject("select sealed_fields from sealed_user where id = ?", String.class, otherId);
+        assertThat(storedFields).isNotEqualTo(otherStoredFields);
+    }
+
+    @Test
+    void find_by_id_should_return_all_decrypted_fields() {
+        // Given
+        Long id = sealedUserRepository.save(user).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        SealedUser foundUser = sealedUserRepository.findById(id).orElseThrow(AssertionError::new);
+
+        // Then
+        assertThat(foundUser).isEqualToComparingFieldByField(user);
+    }
+
+    @Test
+    void find_by_id_should_return_null_fields_as_null() {
+        // Given
+        SealedUser userWithoutEmail = new SealedUser();
+        userWithoutEmail.setFirstName("Damien");
+        Long id = sealedUserRepository.save(userWithoutEmail).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        SealedUser foundUser = sealedUserRepository.findById(id).orElseThrow(AssertionError::new);
+
+        // Then
+        assertThat(foundUser.getFirstName()).isEqualTo("Damien");
+        assertThat(foundUser.getEmail()).isNull();
+        assertThat(foundUser.getBirthDate()).isNull();
+        assertThat(foundUser.getCreationDate()).isNull();
+    }
+
+    @Test
+    void flush_should_reseal_fields_when_one_field_changes() {
+        // Given
+        Long id = sealedUserRepository.save(user).getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+        SealedUser foundUser = sealedUserRepository.findById(id).orElseThrow(AssertionError::new);
+
+        // When
+        foundUser.setEmail("damien@example.com");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // Then
+        SealedUser updatedUser = sealedUserRepository.findById(id).orElseThrow(AssertionError::new);
+        assertThat(updatedUser.getEmail()).isEqualTo("damien@example.com");
+        assertThat(updatedUser.getLastName()).isEqualTo("Beaufils");
+    }
+}
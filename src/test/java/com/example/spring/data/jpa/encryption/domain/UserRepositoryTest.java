@@ -1,16 +1,30 @@
 package com.example.spring.data.jpa.encryption.domain;
 
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoOperationMonitor;
+import com.example.spring.data.jpa.encryption.converters.CryptoOperationStatistics;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.converters.TenantCryptoContextCache;
+import com.example.spring.data.jpa.encryption.converters.TenantKeyProperties;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 
 import static com.example.spring.data.jpa.encryption.domain.EncryptionHelper.disableDatabaseEncryption;
 import static com.example.spring.data.jpa.encryption.domain.EncryptionHelper.enableDatabaseEncryption;
@@ -18,7 +32,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
-@DataJpaTest
+@DataJpaTest(properties = {
+        "example.database.encryption.tenants.keys.acme=AcmeSuperSecret!",
+        "example.database.encryption.tenants.keys.globex=GlobexSecretKey!",
+        "example.database.encryption.blind-index.key=MyBlindIndexKey",
+        "example.database.encryption.birth-date-index.key=MyBirthDateIndexKey"
+})
+@Import({CryptoContextHolder.class, CryptoOperationMonitor.class, EncryptionPolicies.class, KeyProperty.class, TenantCryptoContextCache.class, TenantKeyProperties.class, PrefixBlindIndex.class, BirthDateBucketIndex.class})
 class UserRepositoryTest {
 
     @Autowired
@@ -27,14 +47,37 @@ class UserRepositoryTest {
     @Autowired
     private TestEntityManager testEntityManager;
 
+    @Autowired
+    private KeyProperty keyProperty;
+
+    @Autowired
+    private CryptoOperationMonitor cryptoOperationMonitor;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
     private User user;
 
     @BeforeEach
     void setUp() {
-        enableDatabaseEncryption(testEntityManager);
+        enableDatabaseEncryption(keyProperty, testEntityManager);
         user = new User();
     }
 
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void context_should_not_create_database_encrypted_user_repository_while_database_side_encryption_is_disabled() {
+        // When
+        String[] beanNames = applicationContext.getBeanNamesForType(DatabaseEncryptedUserRepository.class);
+
+        // Then
+        assertThat(beanNames).isEmpty();
+    }
+
     @Test
     void save_should_persist_user_with_auto_incremented_id() {
         // Given
@@ -54,7 +97,7 @@ class UserRepositoryTest {
         String plainFirstName = "plain first name";
         user.setFirstName(plainFirstName);
         User savedUserWithEncryptionEnabled = userRepository.save(user);
-        disableDatabaseEncryption(testEntityManager);
+        disableDatabaseEncryption(keyProperty, testEntityManager);
 
         // When
         User userRetrievedWithoutEncryptionEnabled = testEntityManager.find(User.class, savedUserWithEncryptionEnabled.getId());
@@ -71,7 +114,7 @@ class UserRepositoryTest {
         String plainLastName = "plain last name";
         user.setLastName(plainLastName);
         User savedUserWithEncryptionEnabled = userRepository.save(user);
-        disableDatabaseEncryption(testEntityManager);
+        disableDatabaseEncryption(keyProperty, testEntityManager);
 
         // When
         User userRetrievedWithoutEncryptionEnabled = testEntityManager.find(User.class, savedUserWithEncryptionEnabled.getId());
@@ -88,7 +131,7 @@ class UserRepositoryTest {
         String plainEmail = "email@example.org";
         user.setEmail(plainEmail);
         User savedUserWithEncryptionEnabled = userRepository.save(user);
-        disableDatabaseEncryption(testEntityManager);
+        disableDatabaseEncryption(keyProperty, testEntityManager);
 
         // When
         User userRetrievedWithoutEncryptionEnabled = testEntityManager.find(User.class, savedUserWithEncryptionEnabled.getId());
@@ -105,7 +148,7 @@ class UserRepositoryTest {
         LocalDate birthDate = LocalDate.of(1988, 3, 28);
         user.setBirthDate(birthDate);
         User savedUserWithEncryptionEnabled = userRepository.save(user);
-        disableDatabaseEncryption(testEntityManager);
+        disableDatabaseEncryption(keyProperty, testEntityManager);
 
         // When
         Throwable throwable = catchThrowable(() -> testEntityManager.find(User.class, savedUserWithEncryptionEnabled.getId()));
@@ -121,7 +164,7 @@ class UserRepositoryTest {
         LocalDateTime creationDate = LocalDateTime.of(2017, 7, 10, 9, 58, 17);
         user.setCreationDate(creationDate);
         User savedUserWithEncryptionEnabled = userRepository.save(user);
-        disableDatabaseEncryption(testEntityManager);
+        disableDatabaseEncryption(keyProperty, testEntityManager);
 
         // When
         Throwable throwable = catchThrowable(() -> testEntityManager.find(User.class, savedUserWithEncryptionEnabled.getId()));
@@ -131,4 +174,179 @@ class UserRepositoryTest {
                 .hasStackTraceContaining("70mKrO09DnCkDbrzFf3IGXWMAMTgLwHGdLsPPqq7ZR4=");
     }
 
-}
\ No newline at end of file
+    @Test
+    void save_should_encrypt_data_of_each_tenant_with_its_own_key() {
+        // Given
+        String plainEmail = "email@example.org";
+        TenantContext.setCurrentTenant("acme");
+        User acmeUser = new User();
+        acmeUser.setEmail(plainEmail);
+        Long acmeUserId = userRepository.save(acmeUser).getId();
+        TenantContext.setCurrentTenant("globex");
+        User globexUser = new User();
+        globexUser.setEmail(plainEmail);
+        Long globexUserId = userRepository.save(globexUser).getId();
+        TenantContext.clear();
+        disableDatabaseEncryption(keyProperty, testEntityManager);
+
+        // When
+        String acmeEncryptedEmail = testEntityManager.find(User.class, acmeUserId).getEmail();
+        String globexEncryptedEmail = testEntityManager.find(User.class, globexUserId).getEmail();
+
+        // Then
+        assertThat(acmeEncryptedEmail).isNotEqualTo(plainEmail).isNotEqualTo(globexEncryptedEmail);
+        testEntityManager.clear();
+        TenantContext.setCurrentTenant("acme");
+        assertThat(userRepository.findById(acmeUserId)).get().extracting(User::getEmail).isEqualTo(plainEmail);
+    }
+
+    @Test
+    void search_by_last_name_prefix_should_find_users_whose_last_name_starts_with_prefix() {
+        // Given
+        User beaufils = saveUserWithLastName("Beaufils");
+        User beauregard = saveUserWithLastName("Beauregard");
+        User bernard = saveUserWithLastName("Bernard");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByLastNamePrefix("bEAu");
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactlyInAnyOrder(beaufils.getId(), beauregard.getId());
+        assertThat(userRepository.searchByLastNamePrefix("Be")).extracting(User::getId)
+                .containsExactlyInAnyOrder(beaufils.getId(), beauregard.getId(), bernard.getId());
+    }
+
+    @Test
+    void search_by_last_name_prefix_should_refine_prefixes_longer_than_indexed_prefixes() {
+        // Given
+        User beaufils = saveUserWithLastName("Beaufils");
+        saveUserWithLastName("Beauregard");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByLastNamePrefix("Beauf");
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(beaufils.getId());
+    }
+
+    @Test
+    void search_by_last_name_prefix_should_find_users_by_their_updated_last_name() {
+        // Given
+        User user = saveUserWithLastName("Bernard");
+        testEntityManager.flush();
+        user.setLastName("Martin");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByLastNamePrefix("Mar");
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(user.getId());
+        assertThat(userRepository.searchByLastNamePrefix("Ber")).isEmpty();
+    }
+
+    @Test
+    void find_all_should_account_decryptions_of_loaded_users_in_current_transaction() {
+        // Given
+        saveUserWithLastName("Beaufils");
+        saveUserWithLastName("Beauregard");
+        saveUserWithLastName("Martin");
+        testEntityManager.flush();
+        testEntityManager.clear();
+        CryptoOperationStatistics statisticsBefore = cryptoOperationMonitor.currentTransactionStatistics();
+
+        // When
+        userRepository.findAll();
+
+        // Then
+        CryptoOperationStatistics statistics = cryptoOperationMonitor.currentTransactionStatistics();
+        assertThat(statisticsBefore.getEncryptions("User.lastName")).isEqualTo(3);
+        assertThat(statistics.getDecryptions("User.lastName") - statisticsBefore.getDecryptions("User.lastName")).isEqualTo(3);
+    }
+
+    @Test
+    void search_by_birth_date_between_should_find_users_born_in_range_bounds_included() {
+        // Given
+        User endOfMarch = saveUserWithBirthDate(LocalDate.of(1988, 3, 28));
+        saveUserWithBirthDate(LocalDate.of(1988, 3, 1));
+        User midApril = saveUserWithBirthDate(LocalDate.of(1988, 4, 15));
+        saveUserWithBirthDate(LocalDate.of(1990, 1, 1));
+        saveUserWithBirthDate(null);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByBirthDateBetween(LocalDate.of(1988, 3, 15), LocalDate.of(1988, 4, 15));
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(endOfMarch.getId(), midApril.getId());
+    }
+
+    @Test
+    void search_by_birth_date_between_should_only_decrypt_birth_dates_of_range_buckets() {
+        // Given
+        for (int month = 0; month < 24; month++) {
+            saveUserWithBirthDate(LocalDate.of(2000, 1, 10).plusMonths(month));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        CryptoOperationStatistics statisticsBefore = cryptoOperationMonitor.currentTransactionStatistics();
+
+        // When
+        List<User> users = userRepository.searchByBirthDateBetween(LocalDate.of(2000, 6, 1), LocalDate.of(2000, 6, 30));
+
+        // Then
+        CryptoOperationStatistics statistics = cryptoOperationMonitor.currentTransactionStatistics();
+        assertThat(users).extracting(User::getBirthDate).containsExactly(LocalDate.of(2000, 6, 10));
+        assertThat(statistics.getDecryptions("User.birthDate") - statisticsBefore.getDecryptions("User.birthDate")).isEqualTo(1);
+    }
+
+    @Test
+    void search_by_birth_date_between_should_find_users_by_their_updated_birth_date() {
+        // Given
+        User user = saveUserWithBirthDate(LocalDate.of(1988, 3, 28));
+        testEntityManager.flush();
+        user.setBirthDate(LocalDate.of(1995, 7, 14));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByBirthDateBetween(LocalDate.of(1995, 1, 1), LocalDate.of(1995, 12, 31));
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(user.getId());
+        assertThat(userRepository.searchByBirthDateBetween(LocalDate.of(1988, 1, 1), LocalDate.of(1988, 12, 31))).isEmpty();
+    }
+
+    @Test
+    void search_by_birth_date_between_should_find_users_written_before_index_was_enabled() {
+        // Given
+        User user = saveUserWithBirthDate(LocalDate.of(1988, 3, 28));
+        testEntityManager.flush();
+        testEntityManager.getEntityManager().createNativeQuery("update user set birth_date_bucket = null").executeUpdate();
+        testEntityManager.clear();
+
+        // When
+        List<User> users = userRepository.searchByBirthDateBetween(LocalDate.of(1988, 1, 1), LocalDate.of(1988, 12, 31));
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(user.getId());
+    }
+
+    private User saveUserWithBirthDate(LocalDate birthDate) {
+        User user = new User();
+        user.setBirthDate(birthDate);
+        return userRepository.save(user);
+    }
+
+    private User saveUserWithLastName(String lastName) {
+        User user = new User();
+        user.setLastName(lastName);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.spring.data.jpa.encryption.export;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.export.chunk-size=2",
+        "example.export.parallelism=2"
+})
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, UserExporter.class})
+class UserExporterTest {
+
+    @Autowired
+    private UserExporter userExporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setFirstName("first name " + i);
+            user.setLastName("last, \"name\" " + i);
+            user.setEmail("email" + i + "@example.org");
+            user.setBirthDate(LocalDate.of(1988, 3, 28 - i));
+            user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17 + i));
+            userIds.add(userRepository.save(user).getId());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void export_should_write_decrypted_users_as_csv_in_id_order() {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        userExporter.export(outputStream, ExportFormat.CSV);
+
+        // Then
+        String[] lines = new String(outputStream.toByteArray(), UTF_8).split("\n");
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).isEqualTo("id,firstName,lastName,email,birthDate,creationDate");
+        for (int i = 0; i < 5; i++) {
+            assertThat(lines[i + 1]).isEqualTo(userIds.get(i) + ",first name " + i + ",\"last, \"\"name\"\" " + i + "\",email" + i + "@example.org,1988-03-" + (28 - i) + ",2017-07-10T09:58:" + (17 + i));
+        }
+    }
+
+    @Test
+    void export_should_write_decrypted_users_as_json_lines() {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        userExporter.export(outputStream, ExportFormat.JSONL);
+
+        // Then
+        String[] lines = new String(outputStream.toByteArray(), UTF_8).split("\n");
+        assertThat(lines).hasSize(5);
+        assertThat(lines[0]).isEqualTo("{\"id\":\"" + userIds.get(0) + "\",\"firstName\":\"first name 0\",\"lastName\":\"last, \\\"name\\\" 0\","
+                + "\"email\":\"email0@example.org\",\"birthDate\":\"1988-03-28\",\"creationDate\":\"2017-07-10T09:58:17\"}");
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex.Granularity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class BirthDateBucketIndexTest {
+
+    @Test
+    void token_should_be_equal_for_dates_of_the_same_month() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.MONTH);
+
+        // When / Then
+        assertThat(index.token(LocalDate.of(1988, 3, 1))).isEqualTo(index.token(LocalDate.of(1988, 3, 28)))
+                .isNotEqualTo(index.token(LocalDate.of(1988, 4, 1)))
+                .isNotEqualTo(index.token(LocalDate.of(1989, 3, 1)))
+                .hasSize(22);
+    }
+
+    @Test
+    void token_should_be_equal_for_dates_of_the_same_year_with_year_granularity() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.YEAR);
+
+        // When / Then
+        assertThat(index.token(LocalDate.of(1988, 1, 1))).isEqualTo(index.token(LocalDate.of(1988, 12, 31)))
+                .isNotEqualTo(index.token(LocalDate.of(1989, 1, 1)));
+    }
+
+    @Test
+    void token_should_depend_on_key() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.MONTH);
+        BirthDateBucketIndex otherIndex = new BirthDateBucketIndex("AnotherIndexKey", Granularity.MONTH);
+
+        // When / Then
+        assertThat(index.token(LocalDate.of(1988, 3, 28))).isNotEqualTo(otherIndex.token(LocalDate.of(1988, 3, 28)));
+    }
+
+    @Test
+    void token_should_be_null_when_index_is_disabled_and_sentinel_without_birth_date() {
+        assertThat(BirthDateBucketIndex.disabled().token(LocalDate.of(1988, 3, 28))).isNull();
+        assertThat(new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.MONTH).token(null))
+                .isEqualTo(BirthDateBucketIndex.NO_BIRTH_DATE_TOKEN);
+    }
+
+    @Test
+    void search_tokens_should_return_tokens_of_all_buckets_intersecting_range() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.MONTH);
+
+        // When
+        List<String> tokens = index.searchTokens(LocalDate.of(1988, 11, 20), LocalDate.of(1989, 2, 3));
+
+        // Then
+        assertThat(tokens).containsExactly(
+                index.token(LocalDate.of(1988, 11, 1)),
+                index.token(LocalDate.of(1988, 12, 1)),
+                index.token(LocalDate.of(1989, 1, 1)),
+                index.token(LocalDate.of(1989, 2, 1)));
+    }
+
+    @Test
+    void search_tokens_should_return_one_token_per_year_with_year_granularity() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.YEAR);
+
+        // When
+        List<String> tokens = index.searchTokens(LocalDate.of(1988, 11, 20), LocalDate.of(1990, 2, 3));
+
+        // Then
+        assertThat(tokens).containsExactly(
+                index.token(LocalDate.of(1988, 1, 1)),
+                index.token(LocalDate.of(1989, 1, 1)),
+                index.token(LocalDate.of(1990, 1, 1)));
+    }
+
+    @Test
+    void search_tokens_should_throw_exception_when_index_is_disabled() {
+        // When
+        Throwable throwable = catchThrowable(() -> BirthDateBucketIndex.disabled().searchTokens(LocalDate.of(1988, 1, 1), LocalDate.of(1988, 12, 31)));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void search_tokens_should_throw_exception_when_range_is_reversed() {
+        // Given
+        BirthDateBucketIndex index = new BirthDateBucketIndex("MyBirthDateIndexKey", Granularity.MONTH);
+
+        // When
+        Throwable throwable = catchThrowable(() -> index.searchTokens(LocalDate.of(1989, 1, 1), LocalDate.of(1988, 1, 1)));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+}
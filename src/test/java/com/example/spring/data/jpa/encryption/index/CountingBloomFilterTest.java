@@ -0,0 +1,108 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void might_contain_should_return_true_for_added_elements() {
+        // Given
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        long[][] hashes = new long[1000][];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = new long[]{random.nextLong(), random.nextLong()};
+            filter.add(hashes[i][0], hashes[i][1]);
+        }
+
+        // When / Then
+        for (long[] hash : hashes) {
+            assertThat(filter.mightContain(hash[0], hash[1])).isTrue();
+        }
+    }
+
+    @Test
+    void might_contain_should_stay_close_to_false_positive_rate_at_expected_insertions() {
+        // Given
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(random.nextLong(), random.nextLong());
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void remove_should_forget_element() {
+        // Given
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        filter.add(1234L, 5678L);
+
+        // When
+        filter.remove(1234L, 5678L);
+
+        // Then
+        assertThat(filter.mightContain(1234L, 5678L)).isFalse();
+    }
+
+    @Test
+    void remove_should_keep_element_added_twice() {
+        // Given
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        filter.add(1234L, 5678L);
+        filter.add(1234L, 5678L);
+
+        // When
+        filter.remove(1234L, 5678L);
+
+        // Then
+        assertThat(filter.mightContain(1234L, 5678L)).isTrue();
+    }
+
+    @Test
+    void remove_should_not_decrement_saturated_counters() {
+        // Given
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        for (int i = 0; i < 20; i++) {
+            filter.add(1234L, 5678L);
+        }
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            filter.remove(1234L, 5678L);
+        }
+
+        // Then
+        assertThat(filter.mightContain(1234L, 5678L)).isTrue();
+    }
+
+    @Test
+    void constructor_should_size_filter_for_expected_insertions_and_false_positive_rate() {
+        // When
+        CountingBloomFilter filter = new CountingBloomFilter(1_000_000, 0.01);
+
+        // Then
+        assertThat(filter.getCounterCount()).isBetween(9_585_059L, 9_585_059L + 16);
+        assertThat(filter.getHashCount()).isEqualTo(7);
+    }
+
+    @Test
+    void constructor_should_reject_invalid_false_positive_rate() {
+        assertThatThrownBy(() -> new CountingBloomFilter(1000, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.converters.TenantCryptoContextCache;
+import com.example.spring.data.jpa.encryption.converters.TenantKeyProperties;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.email-filter.enabled=true",
+        "example.email-filter.expected-emails=10000",
+        "example.database.encryption.tenants.keys.acme=AcmeSuperSecret!"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, TenantCryptoContextCache.class, TenantKeyProperties.class, PrefixBlindIndex.class, EmailBloomFilter.class})
+class EmailBloomFilterTest {
+
+    private static final String UNREADABLE_EMAIL = "not encrypted with the default key";
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CryptoConverterFactory cryptoConverterFactory;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+        emailBloomFilter.build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void exists_by_email_should_tell_whether_email_is_taken() {
+        // Given
+        userRepository.save(newUser("damien@example.com"));
+
+        // When / Then
+        assertThat(userRepository.existsByEmail("damien@example.com")).isTrue();
+        assertThat(userRepository.existsByEmail("someone@example.com")).isFalse();
+    }
+
+    @Test
+    void might_contain_should_return_false_for_almost_all_absent_emails() {
+        // Given
+        for (int i = 0; i < 100; i++) {
+            userRepository.save(newUser("user" + i + "@example.com"));
+        }
+
+        // When
+        int possiblyPresent = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (emailBloomFilter.mightContain("absent" + i + "@example.com")) {
+                possiblyPresent++;
+            }
+        }
+
+        // Then
+        assertThat(possiblyPresent).isLessThan(50);
+        assertThat(emailBloomFilter.mightContain("user42@example.com")).isTrue();
+    }
+
+    @Test
+    void delete_should_remove_email_once_committed() {
+        // Given
+        User user = userRepository.save(newUser("damien@example.com"));
+
+        // When
+        userRepository.delete(user);
+
+        // Then
+        assertThat(emailBloomFilter.mightContain("damien@example.com")).isFalse();
+        assertThat(userRepository.existsByEmail("damien@example.com")).isFalse();
+    }
+
+    @Test
+    void save_should_replace_changed_email_once_committed() {
+        // Given
+        Long id = userRepository.save(newUser("damien@example.com")).getId();
+        User user = userRepository.findById(id).orElseThrow(IllegalStateException::new);
+        user.setEmail("damien.beaufils@example.com");
+
+        // When
+        userRepository.save(user);
+
+        // Then
+        assertThat(emailBloomFilter.mightContain("damien@example.com")).isFalse();
+        assertThat(emailBloomFilter.mightContain("damien.beaufils@example.com")).isTrue();
+    }
+
+    @Test
+    void delete_of_tenant_user_should_not_remove_email_stored_with_default_key() {
+        // Given
+        TenantContext.setCurrentTenant("acme");
+        // Stored before the filter was built, so never counted in it, like every tenant email
+        String encryptedEmail = cryptoConverterFactory.create(UserConverters.Email.class).convertToDatabaseColumn("damien@example.com");
+        jdbcTemplate.update("insert into user (email) values (?)", encryptedEmail);
+        Long tenantUserId = jdbcTemplate.queryForObject("select id from user where email = ?", Long.class, encryptedEmail);
+        TenantContext.clear();
+        userRepository.save(newUser("damien@example.com"));
+        TenantContext.setCurrentTenant("acme");
+
+        // When
+        userRepository.deleteById(tenantUserId);
+
+        // Then
+        TenantContext.clear();
+        assertThat(emailBloomFilter.mightContain("damien@example.com")).isTrue();
+        assertThat(userRepository.existsByEmail("damien@example.com")).isTrue();
+    }
+
+    @Test
+    void build_should_add_stored_emails_and_skip_unreadable_ones() {
+        // Given
+        userRepository.save(newUser("damien@example.com"));
+        jdbcTemplate.update("insert into user (email) values (?)", UNREADABLE_EMAIL);
+        EmailBloomFilter newEmailBloomFilter = new EmailBloomFilter(jdbcTemplate, cryptoConverterFactory, 1000, 0.01, 1, 10, 2);
+
+        try {
+            // When
+            newEmailBloomFilter.build();
+
+            // Then
+            assertThat(newEmailBloomFilter.isReady()).isTrue();
+            assertThat(newEmailBloomFilter.mightContain("damien@example.com")).isTrue();
+            assertThat(newEmailBloomFilter.mightContain("someone@example.com")).isFalse();
+        } finally {
+            jdbcTemplate.update("delete from user where email = ?", UNREADABLE_EMAIL);
+        }
+    }
+
+    @Test
+    void might_contain_should_return_true_until_built() {
+        // Given
+        EmailBloomFilter newEmailBloomFilter = new EmailBloomFilter(jdbcTemplate, cryptoConverterFactory, 1000, 0.01, 1, 10, 2);
+
+        // When / Then
+        assertThat(newEmailBloomFilter.isReady()).isFalse();
+        assertThat(newEmailBloomFilter.mightContain("someone@example.com")).isTrue();
+    }
+
+    @Test
+    void might_contain_should_return_true_when_tenant_is_set() {
+        // Given
+        TenantContext.setCurrentTenant("acme");
+
+        // When / Then
+        assertThat(emailBloomFilter.mightContain("someone@example.com")).isTrue();
+    }
+
+    private static User newUser(String email) {
+        User user = new User();
+        user.setFirstName("Damien");
+        user.setLastName("Beaufils");
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.spring.data.jpa.encryption.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class PrefixBlindIndexTest {
+
+    private PrefixBlindIndex prefixBlindIndex;
+
+    @BeforeEach
+    void setUp() {
+        prefixBlindIndex = new PrefixBlindIndex("MyBlindIndexKey", 4);
+    }
+
+    @Nested
+    class TokensShould {
+
+        @Test
+        void return_one_token_per_prefix_up_to_max_prefix_length() {
+            // When
+            Set<String> tokens = prefixBlindIndex.tokens("Beaufils");
+
+            // Then
+            assertThat(tokens).hasSize(4)
+                    .contains(prefixBlindIndex.searchToken("b"), prefixBlindIndex.searchToken("be"), prefixBlindIndex.searchToken("bea"), prefixBlindIndex.searchToken("beau"));
+        }
+
+        @Test
+        void return_one_token_per_character_when_value_is_shorter_than_max_prefix_length() {
+            // When
+            Set<String> tokens = prefixBlindIndex.tokens("Li");
+
+            // Then
+            assertThat(tokens).hasSize(2);
+        }
+
+        @Test
+        void ignore_case_diacritics_and_surrounding_spaces() {
+            // When
+            Set<String> tokens = prefixBlindIndex.tokens("  \u00C9mile ");
+
+            // Then
+            assertThat(tokens).isEqualTo(prefixBlindIndex.tokens("emile"));
+        }
+
+        @Test
+        void depend_on_blind_index_key() {
+            // Given
+            PrefixBlindIndex otherPrefixBlindIndex = new PrefixBlindIndex("MyOtherBlindIndexKey", 4);
+
+            // When
+            Set<String> tokens = otherPrefixBlindIndex.tokens("Beaufils");
+
+            // Then
+            assertThat(tokens).doesNotContainAnyElementsOf(prefixBlindIndex.tokens("Beaufils"));
+        }
+
+        @Test
+        void return_no_token_when_index_is_disabled() {
+            // When
+            Set<String> tokens = PrefixBlindIndex.disabled().tokens("Beaufils");
+
+            // Then
+            assertThat(tokens).isEmpty();
+        }
+    }
+
+    @Nested
+    class SearchTokenShould {
+
+        @Test
+        void truncate_prefix_longer_than_max_prefix_length() {
+            // When
+            String searchToken = prefixBlindIndex.searchToken("Beaufils");
+
+            // Then
+            assertThat(searchToken).isEqualTo(prefixBlindIndex.searchToken("beau"));
+        }
+
+        @Test
+        void reject_empty_prefix() {
+            // When
+            Throwable throwable = catchThrowable(() -> prefixBlindIndex.searchToken(" "));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void fail_when_index_is_disabled() {
+            // When
+            Throwable throwable = catchThrowable(() -> PrefixBlindIndex.disabled().searchToken("beau"));
+
+            // Then
+            assertThat(throwable).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.spring.data.jpa.encryption.ingest;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.BirthDateBucketIndex;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.write-behind.enabled=true",
+        "example.write-behind.batch-size=3",
+        "example.write-behind.max-latency-millis=20",
+        "example.write-behind.max-attempts=2",
+        "example.write-behind.dead-letter-file=" + UserWriteBehindQueueTest.DEAD_LETTER_FILE,
+        "example.database.encryption.blind-index.key=MyBlindIndexKey",
+        "example.database.encryption.birth-date-index.key=MyBirthDateIndexKey"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, BirthDateBucketIndex.class, UserWriteBehindQueue.class})
+class UserWriteBehindQueueTest {
+
+    static final String DEAD_LETTER_FILE = "build/write-behind-dead-letters-test.jsonl";
+
+    @Autowired
+    private UserWriteBehindQueue userWriteBehindQueue;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CryptoConverterFactory cryptoConverterFactory;
+
+    @Autowired
+    private PrefixBlindIndex prefixBlindIndex;
+
+    @Autowired
+    private ObjectProvider<BirthDateBucketIndex> birthDateBucketIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyProperty.setDatabase("MySuperSecretKey");
+        Files.deleteIfExists(Paths.get(DEAD_LETTER_FILE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void submit_should_save_encrypted_users_in_batches() throws Exception {
+        // Given
+        List<CompletableFuture<Long>> ids = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 7; i++) {
+            ids.add(userWriteBehindQueue.submit(newUser("Beaufils " + i)));
+        }
+
+        // Then
+        for (int i = 0; i < 7; i++) {
+            Long id = ids.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(userRepository.findById(id)).hasValueSatisfying(user -> assertThat(user.getLastName()).startsWith("Beaufils "));
+        }
+        assertThat(userRepository.count()).isEqualTo(7);
+    }
+
+    @Test
+    void submit_should_index_last_name_prefix_of_saved_users() throws Exception {
+        // When
+        Long id = userWriteBehindQueue.submit(newUser("Martin")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(userRepository.searchByLastNamePrefix("Mar")).extracting(User::getId).containsExactly(id);
+    }
+
+    @Test
+    void submit_should_index_birth_date_bucket_of_saved_users() throws Exception {
+        // Given
+        User user = newUser("Beaufils");
+        user.setBirthDate(LocalDate.of(1988, 3, 28));
+
+        // When
+        Long id = userWriteBehindQueue.submit(user).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject("select birth_date_bucket from user where id = ?", String.class, id)).isNotNull();
+        assertThat(userRepository.searchByBirthDateBetween(LocalDate.of(1988, 3, 1), LocalDate.of(1988, 3, 31)))
+                .extracting(User::getId).containsExactly(id);
+    }
+
+    @Test
+    void submit_should_write_users_which_cannot_be_inserted_to_dead_letter_file() throws Exception {
+        // Given
+        User tooLongUser = newUser(StringUtils.repeat("x", 300));
+
+        // When
+        CompletableFuture<Long> validId = userWriteBehindQueue.submit(newUser("Beaufils"));
+        CompletableFuture<Long> invalidId = userWriteBehindQueue.submit(tooLongUser);
+
+        // Then
+        assertThat(validId.get(5, TimeUnit.SECONDS)).isNotNull();
+        Throwable throwable = catchThrowable(() -> invalidId.get(5, TimeUnit.SECONDS));
+        assertThat(throwable).isInstanceOf(ExecutionException.class);
+        Path deadLetterFile = Paths.get(DEAD_LETTER_FILE);
+        List<String> deadLetters = Files.readAllLines(deadLetterFile, UTF_8);
+        assertThat(deadLetters).hasSize(1);
+        assertThat(deadLetters.get(0)).contains("\"lastName\":\"", "\"birthDateBucket\":", "\"lastNamePrefixTokens\":\"").doesNotContain("xxx");
+    }
+
+    @Test
+    void shutdown_should_write_enqueued_users_then_reject_new_ones() throws Exception {
+        // Given
+        UserWriteBehindQueue newUserWriteBehindQueue = new UserWriteBehindQueue(jdbcTemplate, transactionManager, cryptoConverterFactory,
+                prefixBlindIndex, birthDateBucketIndex, 100, 3, 20, 1000, 2, 2, DEAD_LETTER_FILE);
+        List<CompletableFuture<Long>> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(newUserWriteBehindQueue.submit(newUser("Beaufils " + i)));
+        }
+
+        // When
+        newUserWriteBehindQueue.shutdown();
+
+        // Then
+        assertThat(ids).allSatisfy(id -> assertThat(id).isCompleted());
+        assertThat(userRepository.count()).isEqualTo(10);
+        assertThat(catchThrowable(() -> newUserWriteBehindQueue.submit(newUser("Martin")))).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void interrupted_worker_should_complete_its_batch_exceptionally_and_write_it_to_dead_letter_file() throws Exception {
+        // Given
+        UserWriteBehindQueue newUserWriteBehindQueue = new UserWriteBehindQueue(jdbcTemplate, transactionManager, cryptoConverterFactory,
+                prefixBlindIndex, birthDateBucketIndex, 100, 3, 20, 1000, 1, 100, DEAD_LETTER_FILE);
+        CompletableFuture<Long> invalidId = newUserWriteBehindQueue.submit(newUser(StringUtils.repeat("x", 300)));
+        Thread retryingWorker = awaitRetryingWorker();
+
+        // When
+        retryingWorker.interrupt();
+
+        // Then
+        Throwable throwable = catchThrowable(() -> invalidId.get(5, TimeUnit.SECONDS));
+        assertThat(throwable).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(Files.readAllLines(Paths.get(DEAD_LETTER_FILE), UTF_8)).hasSize(1);
+        newUserWriteBehindQueue.shutdown();
+    }
+
+    private static Thread awaitRetryingWorker() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                // Workers of the other queue are idle, waiting for users rather than sleeping before a retry
+                if (thread.getKey().getName().startsWith("user-write-behind-") && Arrays.stream(thread.getValue())
+                        .anyMatch(element -> element.getClassName().equals(Thread.class.getName()) && element.getMethodName().equals("sleep"))) {
+                    return thread.getKey();
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No worker is waiting to retry a batch");
+    }
+
+    private static User newUser(String lastName) {
+        User user = new User();
+        user.setFirstName("Damien");
+        user.setLastName(lastName);
+        return user;
+    }
+}
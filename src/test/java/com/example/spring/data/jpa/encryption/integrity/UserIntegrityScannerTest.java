@@ -0,0 +1,146 @@
+package com.example.spring.data.jpa.encryption.integrity;
+
+import com.example.spring.data.jpa.encryption.converters.CipherInitializer;
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.converters.StringCryptoConverter;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.integrity.partition-size=2",
+        "example.integrity.parallelism=2"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, UserIntegrityScanner.class})
+class UserIntegrityScannerTest {
+
+    @Autowired
+    private UserIntegrityScanner userIntegrityScanner;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    @Autowired
+    private CryptoConverterFactory cryptoConverterFactory;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User user = new User();
+            user.setFirstName("first name " + i);
+            user.setLastName("last name " + i);
+            user.setEmail("email" + i + "@example.org");
+            user.setBirthDate(LocalDate.of(1988, 3, 28 - i));
+            user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17 + i));
+            userIds.add(userRepository.save(user).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Bad rows cannot be loaded as entities to be deleted
+        jdbcTemplate.update("delete from user_last_name_prefix");
+        jdbcTemplate.update("delete from user");
+    }
+
+    @Test
+    void scan_should_report_a_clean_table() {
+        // When
+        IntegrityReport report = userIntegrityScanner.scan();
+
+        // Then
+        assertThat(report.getScannedRows()).isEqualTo(7);
+        assertThat(report.isClean()).isTrue();
+    }
+
+    @Test
+    void scan_should_scan_every_partition_when_more_partitions_than_pending_ones_are_allowed() {
+        // Given one row per partition, and at most 2 pending partitions
+        UserIntegrityScanner singleThreadScanner = new UserIntegrityScanner(jdbcTemplate, cryptoConverterFactory, 1, 10, 100, 1);
+
+        try {
+            // When
+            IntegrityReport report = singleThreadScanner.scan();
+
+            // Then
+            assertThat(report.getScannedRows()).isEqualTo(7);
+            assertThat(report.isClean()).isTrue();
+        } finally {
+            singleThreadScanner.shutdown();
+        }
+    }
+
+    @Test
+    void scan_should_report_bad_rows_by_column() throws Exception {
+        // Given
+        CryptoContextHolder otherKeyHolder = new CryptoContextHolder();
+        otherKeyHolder.set(new CipherInitializer().createCryptoContext("MyOtherSecretKey"));
+        String emailEncryptedWithOtherKey = new StringCryptoConverter(otherKeyHolder).convertToDatabaseColumn("email@example.org");
+        jdbcTemplate.update("update user set email = ? where id = ?", emailEncryptedWithOtherKey, userIds.get(1));
+        jdbcTemplate.update("update user set first_name = ? where id = ?", "bm90IGVuY3J5cHRlZA==", userIds.get(4));
+        jdbcTemplate.update("update user set birth_date = ?, first_name = ? where id = ?", "not base64!", "bm90IGVuY3J5cHRlZA==", userIds.get(6));
+
+        // When
+        IntegrityReport report = userIntegrityScanner.scan();
+
+        // Then
+        assertThat(report.getScannedRows()).isEqualTo(7);
+        assertThat(report.isClean()).isFalse();
+        assertThat(report.getColumnReports()).containsOnlyKeys("first_name", "email", "birth_date");
+        assertThat(report.getColumnReports().get("first_name").getBadRows()).isEqualTo(2);
+        assertThat(report.getColumnReports().get("first_name").getBadRowIds()).containsExactlyInAnyOrder(userIds.get(4), userIds.get(6));
+        assertThat(report.getColumnReports().get("email").getBadRowIds()).containsExactly(userIds.get(1));
+        assertThat(report.getColumnReports().get("birth_date").getBadRowIds()).containsExactly(userIds.get(6));
+    }
+
+    @Test
+    void scan_should_report_values_decrypting_to_invalid_utf8() throws Exception {
+        // Given
+        Cipher cipher = new CipherInitializer().prepareAndInitCipher(Cipher.ENCRYPT_MODE, "MySuperSecretKey");
+        String invalidUtf8EncryptedWithKey = Base64.getEncoder().encodeToString(cipher.doFinal(new byte[]{(byte) 0xC3, 0x28}));
+        jdbcTemplate.update("update user set last_name = ? where id = ?", invalidUtf8EncryptedWithKey, userIds.get(3));
+
+        // When
+        IntegrityReport report = userIntegrityScanner.scan();
+
+        // Then
+        assertThat(report.getScannedRows()).isEqualTo(7);
+        assertThat(report.getColumnReports()).containsOnlyKeys("last_name");
+        assertThat(report.getColumnReports().get("last_name").getBadRowIds()).containsExactly(userIds.get(3));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.spring.data.jpa.encryption.paging;
+
+import com.example.spring.data.jpa.encryption.domain.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class UserPageCursorTest {
+
+    private final List<Long> prefetchedAfterIds = new ArrayList<>();
+
+    @Test
+    void should_prefetch_first_page_when_opened() {
+        // When
+        new UserPageCursor(null, 2, prefetcher(users(1L, 2L)));
+
+        // Then
+        assertThat(prefetchedAfterIds).containsExactly((Long) null);
+    }
+
+    @Test
+    void should_prefetch_next_page_before_current_page_is_returned() {
+        // Given
+        UserPageCursor cursor = new UserPageCursor(null, 2, prefetcher(users(1L, 2L), users(3L, 4L), users(5L)));
+
+        // When
+        List<User> page = cursor.next();
+
+        // Then
+        assertThat(page).extracting(User::getId).containsExactly(1L, 2L);
+        assertThat(prefetchedAfterIds).containsExactly(null, 2L);
+    }
+
+    @Test
+    void should_not_prefetch_after_a_short_page() {
+        // Given
+        UserPageCursor cursor = new UserPageCursor(null, 2, prefetcher(users(1L, 2L), users(3L)));
+        cursor.next();
+
+        // When
+        List<User> page = cursor.next();
+
+        // Then
+        assertThat(page).extracting(User::getId).containsExactly(3L);
+        assertThat(cursor.hasNext()).isFalse();
+        assertThat(prefetchedAfterIds).containsExactly(null, 2L);
+    }
+
+    @Test
+    void should_end_on_empty_page() {
+        // Given
+        UserPageCursor cursor = new UserPageCursor(5L, 2, prefetcher(users(6L, 7L), Collections.emptyList()));
+        cursor.next();
+
+        // When
+        Throwable throwable = catchThrowable(cursor::next);
+
+        // Then
+        assertThat(throwable).isInstanceOf(NoSuchElementException.class);
+        assertThat(cursor.getLastId()).isEqualTo(7L);
+    }
+
+    @Test
+    void should_cancel_pending_prefetch_when_closed() {
+        // Given
+        CompletableFuture<List<User>> pendingPage = new CompletableFuture<>();
+        UserPageCursor cursor = new UserPageCursor(null, 2, afterId -> pendingPage);
+
+        // When
+        cursor.close();
+
+        // Then
+        assertThat(pendingPage).isCancelled();
+        assertThat(cursor.hasNext()).isFalse();
+    }
+
+    @Test
+    void should_report_prefetch_failure_when_page_is_read() {
+        // Given
+        CompletableFuture<List<User>> failedPage = new CompletableFuture<>();
+        failedPage.completeExceptionally(new IllegalStateException("Database is down"));
+        UserPageCursor cursor = new UserPageCursor(null, 2, afterId -> failedPage);
+
+        // When
+        Throwable throwable = catchThrowable(cursor::hasNext);
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(throwable.getCause()).hasMessage("Database is down");
+    }
+
+    @SafeVarargs
+    private final Function<Long, Future<List<User>>> prefetcher(List<User>... pages) {
+        return afterId -> {
+            prefetchedAfterIds.add(afterId);
+            return CompletableFuture.completedFuture(pages[prefetchedAfterIds.size() - 1]);
+        };
+    }
+
+    private static List<User> users(Long... ids) {
+        List<User> users = new ArrayList<>();
+        for (Long id : Arrays.asList(ids)) {
+            User user = new User();
+            user.setId(id);
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.spring.data.jpa.encryption.paging;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserConverters;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares walks of the whole table by offset pages of {@link UserRepository}, by keyset pages read in the calling
+ * thread, and by a prefetching {@link UserPageCursor}, while the caller re-encrypts the email of each user.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "example.database.encryption.key=MySuperSecretKey")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, UserPager.class})
+class UserPagerBenchmark {
+
+    private static final int USERS = 20_000;
+    private static final int PAGE_SIZE = 500;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private UserPager userPager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CryptoConverterFactory cryptoConverterFactory;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void compare_offset_keyset_and_prefetched_pages() {
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setFirstName("first name " + i);
+            user.setLastName("last name " + i);
+            user.setEmail("email" + i + "@example.org");
+            user.setBirthDate(LocalDate.of(1988, 3, 28).plusDays(i));
+            user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17).plusSeconds(i));
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+        UserConverters.Email emailConverter = cryptoConverterFactory.create(UserConverters.Email.class);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first rounds warm up the JIT, only the last one is representative
+            System.out.println("Round " + round + "/" + ROUNDS);
+            measure("offset pages", () -> {
+                int walked = 0;
+                for (int page = 0; page * PAGE_SIZE < USERS; page++) {
+                    walked += process(userRepository.findAll(PageRequest.of(page, PAGE_SIZE, Sort.by("id"))).getContent(), emailConverter);
+                }
+                return walked;
+            });
+            measure("keyset pages", () -> {
+                int walked = 0;
+                List<User> page = userPager.findPageAfter(null, PAGE_SIZE);
+                while (!page.isEmpty()) {
+                    walked += process(page, emailConverter);
+                    page = userPager.findPageAfter(page.get(page.size() - 1).getId(), PAGE_SIZE);
+                }
+                return walked;
+            });
+            measure("prefetched keyset pages", () -> {
+                int walked = 0;
+                try (UserPageCursor cursor = userPager.open(null, PAGE_SIZE)) {
+                    while (cursor.hasNext()) {
+                        walked += process(cursor.next(), emailConverter);
+                    }
+                }
+                return walked;
+            });
+        }
+    }
+
+    private static int process(List<User> page, UserConverters.Email emailConverter) {
+        for (User user : page) {
+            assertThat(emailConverter.convertToDatabaseColumn(user.getEmail())).isNotNull();
+        }
+        return page.size();
+    }
+
+    private static void measure(String name, Supplier<Integer> walk) {
+        long startNanos = System.nanoTime();
+        int walked = walk.get();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertThat(walked).isEqualTo(USERS);
+        System.out.printf("  %-24s %6d ms for %d users%n", name, elapsedMillis, walked);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.spring.data.jpa.encryption.paging;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "example.paging.prefetch-threads=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, UserPager.class})
+class UserPagerTest {
+
+    @Autowired
+    private UserPager userPager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User user = new User();
+            user.setFirstName("first name " + i);
+            user.setLastName("last name " + i);
+            user.setEmail("email" + i + "@example.org");
+            user.setBirthDate(LocalDate.of(1980 + i, 3, 28));
+            user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+            userIds.add(userRepository.save(user).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void findPageAfter_should_return_decrypted_users_following_id_in_id_order() {
+        // When
+        List<User> users = userPager.findPageAfter(userIds.get(1), 3);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactlyElementsOf(userIds.subList(2, 5));
+        User user = users.get(0);
+        assertThat(user.getFirstName()).isEqualTo("first name 2");
+        assertThat(user.getLastName()).isEqualTo("last name 2");
+        assertThat(user.getEmail()).isEqualTo("email2@example.org");
+        assertThat(user.getBirthDate()).isEqualTo(LocalDate.of(1982, 3, 28));
+        assertThat(user.getCreationDate()).isEqualTo(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+    }
+
+    @Test
+    void findPageAfter_should_start_from_first_user_without_id() {
+        // When
+        List<User> users = userPager.findPageAfter(null, 2);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactlyElementsOf(userIds.subList(0, 2));
+    }
+
+    @Test
+    void open_should_walk_all_users_page_by_page() {
+        // Given
+        List<List<Long>> pages = new ArrayList<>();
+
+        // When
+        try (UserPageCursor cursor = userPager.open(null, 3)) {
+            cursor.forEachRemaining(page -> {
+                List<Long> ids = new ArrayList<>();
+                page.forEach(user -> ids.add(user.getId()));
+                pages.add(ids);
+            });
+        }
+
+        // Then
+        assertThat(pages).containsExactly(userIds.subList(0, 3), userIds.subList(3, 6), userIds.subList(6, 7));
+    }
+
+    @Test
+    void open_should_resume_after_last_id_of_previous_cursor() {
+        // Given
+        Long lastId;
+        try (UserPageCursor cursor = userPager.open(null, 2)) {
+            cursor.next();
+            lastId = cursor.getLastId();
+        }
+
+        // When
+        List<User> page;
+        try (UserPageCursor cursor = userPager.open(lastId, 2)) {
+            page = cursor.next();
+        }
+
+        // Then
+        assertThat(page).extracting(User::getId).containsExactlyElementsOf(userIds.subList(2, 4));
+    }
+
+    @Test
+    void open_should_reject_non_positive_page_size() {
+        // When
+        Throwable throwable = catchThrowable(() -> userPager.open(null, 0));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+}
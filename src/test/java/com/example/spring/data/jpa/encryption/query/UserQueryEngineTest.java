@@ -0,0 +1,151 @@
+package com.example.spring.data.jpa.encryption.query;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "example.query.chunk-size=2",
+        "example.query.parallelism=2",
+        "example.query.max-results=5"
+})
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class, UserQueryEngine.class})
+class UserQueryEngineTest {
+
+    @Autowired
+    private UserQueryEngine userQueryEngine;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = new User();
+            user.setFirstName("first name " + i);
+            user.setLastName("last name " + i);
+            user.setEmail(i % 2 == 0 ? "email" + i + "@example.org" : "email" + i + "@example.com");
+            user.setBirthDate(LocalDate.of(1980 + i, 3, 28));
+            user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+            userIds.add(userRepository.save(user).getId());
+        }
+        User userWithoutEmail = new User();
+        userWithoutEmail.setFirstName("no email");
+        userWithoutEmail.setBirthDate(LocalDate.of(1970, 1, 1));
+        userRepository.save(userWithoutEmail);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void find_should_return_decrypted_users_matching_all_conditions_in_id_order() {
+        // Given
+        UserQuery query = UserQuery.where(UserField.BIRTH_DATE, birthDate -> birthDate.isBefore(LocalDate.of(1986, 1, 1)))
+                .and(UserField.EMAIL, email -> email.endsWith(".org"));
+
+        // When
+        List<User> users = userQueryEngine.find(query);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(userIds.get(0), userIds.get(2), userIds.get(4));
+        User user = users.get(1);
+        assertThat(user.getFirstName()).isEqualTo("first name 2");
+        assertThat(user.getLastName()).isEqualTo("last name 2");
+        assertThat(user.getEmail()).isEqualTo("email2@example.org");
+        assertThat(user.getBirthDate()).isEqualTo(LocalDate.of(1982, 3, 28));
+        assertThat(user.getCreationDate()).isEqualTo(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+    }
+
+    @Test
+    void find_should_not_match_null_values() {
+        // Given
+        UserQuery query = UserQuery.where(UserField.BIRTH_DATE, birthDate -> birthDate.getYear() == 1970)
+                .and(UserField.EMAIL, email -> true);
+
+        // When
+        List<User> users = userQueryEngine.find(query);
+
+        // Then
+        assertThat(users).isEmpty();
+    }
+
+    @Test
+    void find_should_stop_at_query_limit() {
+        // Given
+        UserQuery query = UserQuery.where(UserField.FIRST_NAME, firstName -> firstName.startsWith("first name")).limit(3);
+
+        // When
+        List<User> users = userQueryEngine.find(query);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactlyElementsOf(userIds.subList(0, 3));
+    }
+
+    @Test
+    void find_should_return_at_most_max_results() {
+        // Given
+        UserQuery query = UserQuery.where(UserField.FIRST_NAME, firstName -> true);
+
+        // When
+        List<User> users = userQueryEngine.find(query);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactlyElementsOf(userIds.subList(0, 5));
+    }
+
+    @Test
+    void find_should_not_test_next_conditions_of_rows_failing_a_condition() {
+        // Given
+        AtomicInteger testedEmails = new AtomicInteger();
+        UserQuery query = UserQuery.where(UserField.LAST_NAME, lastName -> lastName.equals("last name 7"))
+                .and(UserField.EMAIL, email -> testedEmails.incrementAndGet() > 0);
+
+        // When
+        List<User> users = userQueryEngine.find(query);
+
+        // Then
+        assertThat(users).extracting(User::getId).containsExactly(userIds.get(7));
+        assertThat(testedEmails).hasValue(1);
+    }
+
+    @Test
+    void limit_should_reject_non_positive_limit() {
+        // When
+        Throwable throwable = catchThrowable(() -> UserQuery.where(UserField.EMAIL, email -> true).limit(0));
+
+        // Then
+        assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+    }
+}
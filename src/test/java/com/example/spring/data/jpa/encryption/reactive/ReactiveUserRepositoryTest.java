@@ -0,0 +1,137 @@
+package com.example.spring.data.jpa.encryption.reactive;
+
+import com.example.spring.data.jpa.encryption.converters.CryptoContextHolder;
+import com.example.spring.data.jpa.encryption.converters.CryptoConverterFactory;
+import com.example.spring.data.jpa.encryption.converters.EncryptionPolicies;
+import com.example.spring.data.jpa.encryption.converters.KeyProperty;
+import com.example.spring.data.jpa.encryption.domain.User;
+import com.example.spring.data.jpa.encryption.domain.UserRepository;
+import com.example.spring.data.jpa.encryption.index.PrefixBlindIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "example.reactive.database=reactive",
+        "example.reactive.crypto-parallelism=2",
+        "example.database.encryption.blind-index.key=MyBlindIndexKey"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CryptoContextHolder.class, CryptoConverterFactory.class, EncryptionPolicies.class, KeyProperty.class, PrefixBlindIndex.class,
+        ReactiveUserConfiguration.class, ReactiveUserRepository.class})
+class ReactiveUserRepositoryTest {
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private KeyProperty keyProperty;
+
+    @BeforeEach
+    void setUp() {
+        keyProperty.setDatabase("MySuperSecretKey");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void save_should_encrypt_user_readable_by_jpa_repository() {
+        // Given
+        User user = newUser("Beaufils");
+
+        // When
+        User savedUser = reactiveUserRepository.save(user).block();
+
+        // Then
+        User jpaUser = userRepository.findById(savedUser.getId()).orElseThrow(AssertionError::new);
+        assertThat(jpaUser).isEqualToIgnoringGivenFields(user, "lastNamePrefixTokens", "storedEmail");
+        String encryptedLastName = jdbcTemplate.queryForObject("select last_name from user where id = ?", String.class, savedUser.getId());
+        assertThat(encryptedLastName).isNotEqualTo("Beaufils");
+    }
+
+    @Test
+    void save_should_update_existing_user_and_its_last_name_prefix_tokens() {
+        // Given
+        User user = reactiveUserRepository.save(newUser("Bernard")).block();
+        user.setLastName("Martin");
+
+        // When
+        reactiveUserRepository.save(user).block();
+
+        // Then
+        assertThat(userRepository.count()).isEqualTo(1);
+        assertThat(userRepository.searchByLastNamePrefix("Mar")).extracting(User::getId).containsExactly(user.getId());
+        assertThat(userRepository.searchByLastNamePrefix("Ber")).isEmpty();
+    }
+
+    @Test
+    void find_all_should_decrypt_users_saved_by_jpa_repository_in_id_order() {
+        // Given
+        User beaufils = userRepository.save(newUser("Beaufils"));
+        User martin = userRepository.save(newUser("Martin"));
+
+        // When / Then
+        StepVerifier.create(reactiveUserRepository.findAll())
+                .assertNext(user -> assertThat(user).isEqualToIgnoringGivenFields(beaufils, "lastNamePrefixTokens", "storedEmail"))
+                .assertNext(user -> assertThat(user).isEqualToIgnoringGivenFields(martin, "lastNamePrefixTokens", "storedEmail"))
+                .verifyComplete();
+    }
+
+    @Test
+    void find_by_id_should_decrypt_user_on_crypto_scheduler() {
+        // Given
+        User user = userRepository.save(newUser("Beaufils"));
+
+        // When
+        String decryptingThreadName = reactiveUserRepository.findById(user.getId())
+                .map(foundUser -> Thread.currentThread().getName())
+                .block();
+
+        // Then
+        assertThat(decryptingThreadName).startsWith("user-crypto");
+    }
+
+    @Test
+    void find_by_id_should_be_empty_for_unknown_user() {
+        // When / Then
+        StepVerifier.create(reactiveUserRepository.findById(-1))
+                .verifyComplete();
+    }
+
+    private static User newUser(String lastName) {
+        User user = new User();
+        user.setFirstName("Damien");
+        user.setLastName(lastName);
+        user.setEmail("damien@example.org");
+        user.setBirthDate(LocalDate.of(1988, 3, 28));
+        user.setCreationDate(LocalDateTime.of(2017, 7, 10, 9, 58, 17));
+        return user;
+    }
+}
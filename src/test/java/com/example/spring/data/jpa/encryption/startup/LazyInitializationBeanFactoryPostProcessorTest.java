@@ -0,0 +1,67 @@
+package com.example.spring.data.jpa.encryption.startup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Role;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyInitializationBeanFactoryPostProcessorTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(TestConfiguration.class, EagerComponent.class);
+        context.addBeanFactoryPostProcessor(new LazyInitializationBeanFactoryPostProcessor());
+        context.refresh();
+    }
+
+    @Test
+    void make_beans_lazy() {
+        assertThat(context.getBeanFactory().getBeanDefinition("lazyBean").isLazyInit()).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("lazyBean")).isFalse();
+    }
+
+    @Test
+    void keep_beans_annotated_with_lazy_false_eager() {
+        assertThat(context.getBeanFactory().containsSingleton("eagerBean")).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("lazyInitializationBeanFactoryPostProcessorTest.EagerComponent")).isTrue();
+    }
+
+    @Test
+    void keep_infrastructure_beans_eager() {
+        assertThat(context.getBeanFactory().containsSingleton("infrastructureBean")).isTrue();
+    }
+
+    @Configuration
+    static class TestConfiguration {
+
+        @Bean
+        Object lazyBean() {
+            return new Object();
+        }
+
+        @Bean
+        @Lazy(false)
+        Object eagerBean() {
+            return new Object();
+        }
+
+        @Bean
+        @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+        Object infrastructureBean() {
+            return new Object();
+        }
+    }
+
+    @Lazy(false)
+    static class EagerComponent {
+    }
+}
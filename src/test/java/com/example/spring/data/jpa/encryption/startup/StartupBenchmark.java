@@ -0,0 +1,106 @@
+package com.example.spring.data.jpa.encryption.startup;
+
+import com.example.spring.data.jpa.encryption.SpringDataJpaEncryptionExampleApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the time from JVM start to the first successful {@code UserRepository} call, as reported by
+ * {@link StartupReporter}, of the default mode, the fast-startup profile, and the fast-startup profile with the
+ * class data sharing archive built by {@code ./gradlew cdsArchive}. Each mode is started in a new JVM. Run with
+ * {@code ./gradlew cdsArchive benchmark}.
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final long TIMEOUT_SECONDS = 120;
+    private static final Pattern FIRST_CALL_PATTERN = Pattern.compile("First UserRepository call succeeded (\\d+) ms");
+
+    @Test
+    void compare_startup_modes() throws Exception {
+        String classpath = classpath();
+        Path cdsArchive = Paths.get(System.getProperty("example.startup.cds-archive", "build/cds/app.jsa"));
+        boolean cdsArchiveAvailable = Files.isRegularFile(cdsArchive) && isCdsClasspath();
+        if (!cdsArchiveAvailable) {
+            System.out.println("No class data sharing archive, run ./gradlew cdsArchive first to measure it");
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Round " + round + "/" + ROUNDS);
+            System.out.printf("  default                : %6d ms%n", measureFirstCallMillis(classpath, List.of()));
+            System.out.printf("  fast-startup           : %6d ms%n",
+                    measureFirstCallMillis(classpath, List.of(), "--spring.profiles.active=fast-startup"));
+            if (cdsArchiveAvailable) {
+                System.out.printf("  fast-startup + CDS     : %6d ms%n",
+                        measureFirstCallMillis(classpath, List.of("-Xshare:auto", "-XX:SharedArchiveFile=" + cdsArchive),
+                                "--spring.profiles.active=fast-startup"));
+            }
+        }
+    }
+
+    private static long measureFirstCallMillis(String classpath, List<String> jvmOptions, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dspring.devtools.restart.enabled=false");
+        command.add("-cp");
+        command.add(classpath);
+        command.add(SpringDataJpaEncryptionExampleApplication.class.getName());
+        command.add("--example.startup.report.enabled=true");
+        command.add("--example.startup.exit-on-ready=true");
+        command.addAll(Arrays.asList(arguments));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Long firstCallMillis = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = FIRST_CALL_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    firstCallMillis = Long.parseLong(matcher.group(1));
+                }
+            }
+        }
+        boolean exited = process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!exited) {
+            process.destroyForcibly();
+        }
+
+        assertThat(exited).as("application exited").isTrue();
+        assertThat(firstCallMillis).as("first call time reported by %s", command).isNotNull();
+        return firstCallMillis;
+    }
+
+    private static String classpath() throws IOException {
+        // The archive can only be used with the classpath it was dumped with, written by the cdsArchive task
+        if (isCdsClasspath()) {
+            return new String(Files.readAllBytes(cdsClasspathFile()), StandardCharsets.UTF_8).trim();
+        }
+        return System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    }
+
+    private static boolean isCdsClasspath() {
+        return Files.isRegularFile(cdsClasspathFile());
+    }
+
+    private static Path cdsClasspathFile() {
+        return Paths.get(System.getProperty("example.startup.cds-classpath", "build/cds/classpath.txt"));
+    }
+}